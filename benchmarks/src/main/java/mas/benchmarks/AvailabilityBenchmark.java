@@ -0,0 +1,87 @@
+package mas.benchmarks;
+
+import mas.entity.Court;
+import mas.entity.Racket;
+import mas.entity.Trainer;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the availability checks of courts, trainers and rackets across booking collection sizes.
+ * The checked day lies in the middle of the bookings, so lookups can not take a shortcut at either end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvailabilityBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int bookings;
+
+    private Court court;
+
+    private Trainer trainer;
+
+    private Racket racket;
+
+    private LocalDate day;
+
+    private LocalDateTime booked;
+
+    private LocalDateTime free;
+
+    @Setup
+    public void setUp() {
+        Fixtures.installStaticStorage();
+
+        court = Fixtures.court();
+        racket = Fixtures.racket();
+        Fixtures.reserve(court, racket, bookings);
+
+        trainer = Fixtures.trainer();
+        Fixtures.train(trainer, bookings);
+
+        day = Fixtures.FIRST_DAY.plusDays(Fixtures.days(bookings) / 2);
+        booked = day.atTime(Fixtures.OPENING_HOUR);
+        free = booked.plusHours(1);
+    }
+
+    @Benchmark
+    public boolean courtIsAvailableBooked() {
+        return court.isAvailable(booked, Duration.ofHours(1));
+    }
+
+    @Benchmark
+    public boolean courtIsAvailableFree() {
+        return court.isAvailable(free, Duration.ofHours(1));
+    }
+
+    @Benchmark
+    public boolean courtAnyAvailable() {
+        return court.anyAvailable(day);
+    }
+
+    @Benchmark
+    public boolean trainerIsAvailable() {
+        // the free intervals are cached per date, dropping them makes every call compute them from the schedule
+        trainer.invalidateFreeIntervals();
+        return trainer.isAvailable(day);
+    }
+
+    @Benchmark
+    public boolean trainerIsAvailableCached() {
+        return trainer.isAvailable(day);
+    }
+
+    @Benchmark
+    public boolean racketIsAvailable() {
+        return racket.isAvailable(day);
+    }
+}
@@ -0,0 +1,119 @@
+package mas.benchmarks;
+
+import mas.entity.*;
+import mas.util.DBController;
+import mas.util.StaticStorageSnapshot;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * In-memory entity graphs shared by the benchmarks. No database is used: the static storage is served
+ * from a snapshot installed with {@link DBController#useStaticStorageSnapshot}.
+ */
+final class Fixtures {
+
+    /**
+     * The first day of the generated bookings.
+     */
+    static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    static final LocalTime OPENING_HOUR = LocalTime.of(9, 0);
+
+    static final LocalTime CLOSING_HOUR = LocalTime.of(21, 0);
+
+    /**
+     * Number of bookings per day, every other opening hour is booked.
+     */
+    static final int BOOKINGS_PER_DAY = 6;
+
+    private static int courtNumber;
+
+    private static int phoneNr = 600_000_000;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Installs the static storage snapshot used by the domain logic.
+     */
+    static void installStaticStorage() {
+        DBController.INSTANCE.useStaticStorageSnapshot(new StaticStorageSnapshot(OPENING_HOUR, CLOSING_HOUR,
+                BigDecimal.valueOf(100), BigDecimal.valueOf(30),
+                LocalDate.of(2023, 10, 1), LocalDate.of(2024, 4, 1),
+                BigDecimal.valueOf(80), LocalDate.of(2024, 5, 1), LocalDate.of(2024, 9, 1)));
+    }
+
+    static Court court() {
+        return new CourtRoofed(++courtNumber, Court.SurfaceType.Clay, CourtRoofed.RoofType.Hall);
+    }
+
+    static Person client() {
+        return Person.registerClient("Jan", "Kowalski", String.valueOf(++phoneNr));
+    }
+
+    static Racket racket() {
+        return new Racket("Yonex", 100., BigDecimal.valueOf(20));
+    }
+
+    /**
+     * Creates a trainer working every day during the opening hours.
+     */
+    static Trainer trainer() {
+        Map<DayOfWeek, WorkingHours> workingHours = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            workingHours.put(day, new WorkingHours(OPENING_HOUR, CLOSING_HOUR));
+        }
+        return new Trainer("Jędrzej", "Kasztan", String.valueOf(++phoneNr), phoneNr + "@korty.pl",
+                Trainer.TrainerQualification.Instructor, BigDecimal.valueOf(80), workingHours);
+    }
+
+    /**
+     * Returns the start of the n-th booking, {@link Fixtures#BOOKINGS_PER_DAY} bookings a day
+     * starting at every other opening hour.
+     */
+    static LocalDateTime bookingStart(int n) {
+        return FIRST_DAY.plusDays(n / BOOKINGS_PER_DAY).atTime(OPENING_HOUR).plusHours(2L * (n % BOOKINGS_PER_DAY));
+    }
+
+    /**
+     * Returns the number of days covered by the given number of bookings.
+     */
+    static int days(int bookings) {
+        return Math.max(1, (bookings + BOOKINGS_PER_DAY - 1) / BOOKINGS_PER_DAY);
+    }
+
+    /**
+     * Books the given court and racket for the given number of hour-long reservations.
+     *
+     * @param court  the court to book
+     * @param racket the racket to book, or null
+     * @param count  the number of reservations
+     */
+    static void reserve(Court court, Racket racket, int count) {
+        var client = client();
+        for (int n = 0; n < count; n++) {
+            Reservation.makeReservation(bookingStart(n), Duration.ofHours(1), court, racket, client, client);
+        }
+    }
+
+    /**
+     * Books the given trainer for the given number of hour-long trainings on a court of its own.
+     *
+     * @param trainer the trainer to book
+     * @param count   the number of trainings
+     */
+    static void train(Trainer trainer, int count) {
+        var client = client();
+        var court = court();
+        for (int n = 0; n < count; n++) {
+            Training.makeReservation(client, client, trainer, court, bookingStart(n), Duration.ofHours(1));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package mas.benchmarks;
+
+import mas.util.Util;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the interval overlap check underlying every availability scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlapBenchmark {
+
+    private LocalDateTime start;
+
+    private LocalDateTime overlappingStart;
+
+    private LocalDateTime disjointStart;
+
+    private Duration duration;
+
+    @Setup
+    public void setUp() {
+        start = Fixtures.bookingStart(0);
+        overlappingStart = start.plusMinutes(30);
+        disjointStart = start.plusHours(2);
+        duration = Duration.ofHours(1);
+    }
+
+    @Benchmark
+    public boolean overlapping() {
+        return Util.isOverlapping(start, duration, overlappingStart, duration);
+    }
+
+    @Benchmark
+    public boolean disjoint() {
+        return Util.isOverlapping(start, duration, disjointStart, duration);
+    }
+}
@@ -0,0 +1,51 @@
+package mas.benchmarks;
+
+import mas.entity.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the equality of persons, used by every lookup in the booking collections of persons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonBenchmark {
+
+    private Person client;
+
+    private Person sameClient;
+
+    private Person participant;
+
+    @Setup
+    public void setUp() {
+        client = Person.registerClient("Jan", "Kowalski", "600000001");
+        sameClient = Person.registerClient("Jan", "Kowalski", "600000001");
+        participant = Person.registerParticipant("Anna", "Kowalska", client);
+    }
+
+    @Benchmark
+    public boolean clientEquals() {
+        return client.equals(sameClient);
+    }
+
+    @Benchmark
+    public boolean participantEquals() {
+        return participant.equals(client);
+    }
+
+    @Benchmark
+    public int clientHashCode() {
+        return client.hashCode();
+    }
+
+    @Benchmark
+    public int participantHashCode() {
+        return participant.hashCode();
+    }
+}
@@ -0,0 +1,36 @@
+package mas.benchmarks;
+
+import mas.util.SessionData;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the price calculation of the booking in progress, as shown on the summary screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Setup
+    public void setUp() {
+        Fixtures.installStaticStorage();
+
+        SessionData.courtProperty().set(Fixtures.court());
+        SessionData.reservationStartProperty().set(Fixtures.bookingStart(0));
+        SessionData.reservationDurationProperty().set(Duration.ofHours(2));
+        SessionData.racketProperty().set(Fixtures.racket());
+        SessionData.trainerProperty().set(Fixtures.trainer());
+    }
+
+    @Benchmark
+    public BigDecimal sessionTotalPrice() {
+        return SessionData.getTotalPrice();
+    }
+}
@@ -8,6 +8,7 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import mas.util.DBController;
+import mas.util.DBExecutor;
 
 import java.util.Objects;
 
@@ -66,11 +67,14 @@ public class CourtReservationApp extends Application {
      */
     public static void main(String[] args) {
         EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("default");
+        DBController.INSTANCE.setEntityManagerFactory(entityManagerFactory);
         DBController.INSTANCE.setEm(entityManagerFactory.createEntityManager());
+        DBController.INSTANCE.migrate();
         try {
             // DBController.INSTANCE.seedDb();
             launch(args);
         } finally {
+            DBExecutor.INSTANCE.shutdown();
             if (DBController.INSTANCE.getEm().getTransaction().isActive()) {
                 DBController.INSTANCE.getEm().getTransaction().rollback();
             }
@@ -16,6 +16,7 @@ public class Main {
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         EntityTransaction transaction = entityManager.getTransaction();
         try {
+            DBController.INSTANCE.setEntityManagerFactory(entityManagerFactory);
             DBController.INSTANCE.setEm(entityManager);
             DBController.INSTANCE.seedDb();
 
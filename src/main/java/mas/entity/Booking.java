@@ -0,0 +1,78 @@
+package mas.entity;
+
+import mas.util.TimeInterval;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Represents anything occupying a court for a period of time in the Tennis Courts management application,
+ * i.e. a {@link Reservation} or a {@link Training}. A booking takes place once, from its start for its duration,
+ * unless it is recurring like a {@link CyclicalTraining}, which takes place on many days.
+ */
+public interface Booking {
+
+    /**
+     * Returns the start time of the booking.
+     *
+     * @return the start time of the booking
+     */
+    LocalDateTime getStart();
+
+    /**
+     * Returns the duration of the booking.
+     *
+     * @return the duration of the booking
+     */
+    Duration getDuration();
+
+    /**
+     * Returns the court occupied by the booking.
+     *
+     * @return the court occupied by the booking
+     */
+    Court getCourt();
+
+    /**
+     * Returns the end time of the booking; of a recurring booking, the latest time its last occurrence may end.
+     *
+     * @return the end time of the booking
+     */
+    default LocalDateTime getEnd() {
+        return getStart().plus(getDuration());
+    }
+
+    /**
+     * Checks if the booking takes place more than once.
+     *
+     * @return true if the booking is recurring, false otherwise
+     */
+    default boolean isRecurring() {
+        return false;
+    }
+
+    /**
+     * Returns the periods the booking takes place in overlapping the given time period.
+     * The periods of a recurring booking are generated on the fly for the given time period only.
+     *
+     * @param from the start time of the period
+     * @param to   the end time of the period
+     * @return the overlapping periods of the booking, in chronological order
+     */
+    default Stream<TimeInterval> occurrences(LocalDateTime from, LocalDateTime to) {
+        var end = getStart().plus(getDuration());
+        return getStart().isBefore(to) && from.isBefore(end) ? Stream.of(new TimeInterval(getStart(), end)) : Stream.empty();
+    }
+
+    /**
+     * Checks if the booking takes place at any time within the given time period.
+     *
+     * @param from the start time of the period
+     * @param to   the end time of the period
+     * @return true if the booking overlaps the period, false otherwise
+     */
+    default boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return occurrences(from, to).findAny().isPresent();
+    }
+}
@@ -3,26 +3,37 @@ package mas.entity;
 import jakarta.persistence.*;
 import javafx.beans.property.BooleanProperty;
 import javafx.scene.control.TableColumn;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import mas.util.DBController;
-import mas.util.Util;
+import mas.util.HourBitmap;
+import mas.util.IntervalIndex;
+import mas.util.TimeInterval;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.IntStream;
 
 /**
  * Represents an abstract class for a tennis court.
  * It provides functionality to manage reservations and trainings on the court.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -62,6 +73,10 @@ public abstract class Court {
     @Column(nullable = false)
     private Long id;
 
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @Column(unique = true, nullable = false)
     private Integer number;
 
@@ -79,6 +94,7 @@ public abstract class Court {
     }
 
     @OneToMany(mappedBy = "court")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Reservation> reservations = new HashSet<>();
 
     /**
@@ -87,8 +103,8 @@ public abstract class Court {
      */
     public void addReservations(Reservation... reservations) {
         for (Reservation r : reservations) {
-            if (!getReservations().contains(r)) {
-                this.getReservations().add(r);
+            if (this.getReservations().add(r)) {
+                if (occupancy != null) occupancy.add(r);
                 r.setCourt(this);
             }
         }
@@ -100,12 +116,15 @@ public abstract class Court {
      */
     public void removeReservations(Reservation... reservations) {
         for (Reservation r : reservations) {
-            this.getReservations().remove(r);
-            if (r.getCourt() == this) r.setCourt(null);
+            if (this.getReservations().remove(r)) {
+                if (occupancy != null) occupancy.remove(r);
+                if (r.getCourt() == this) r.setCourt(null);
+            }
         }
     }
 
     @OneToMany(mappedBy = "court")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Training> trainings = new HashSet<>();
 
     /**
@@ -114,7 +133,7 @@ public abstract class Court {
      */
     public void addTrainings(Training... trainings) {
         for (Training t : trainings) {
-            this.getTrainings().add(t);
+            if (this.getTrainings().add(t) && occupancy != null) occupancy.add(t);
             if (t.getCourt() == null || t.getCourt() != this) t.setCourt(this);
         }
     }
@@ -125,51 +144,152 @@ public abstract class Court {
      */
     public void removeTrainings(Training... trainings) {
         for (Training t : trainings) {
-            this.getTrainings().remove(t);
-            if (t.getCourt() == this) t.setCourt(null);
+            if (this.getTrainings().remove(t)) {
+                if (occupancy != null) occupancy.remove(t);
+                if (t.getCourt() == this) t.setCourt(null);
+            }
+        }
+    }
+
+    /**
+     * Index of the court's reservations and trainings sorted by their start time.
+     * It is built from the collections on first use and then kept in sync by the add/remove methods.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private IntervalIndex<Booking> occupancy;
+
+    /**
+     * Returns the occupancy index of the court, building it from the reservations and trainings if needed.
+     * @return the occupancy index of the court
+     */
+    private IntervalIndex<Booking> getOccupancy() {
+        if (occupancy == null) {
+            IntervalIndex<Booking> index = new IntervalIndex<>();
+            getReservations().forEach(index::add);
+            getTrainings().forEach(index::add);
+            occupancy = index;
         }
+        return occupancy;
+    }
+
+    /**
+     * Discards the occupancy index, so it gets rebuilt from the collections on next use.
+     * Needs to be called after the reservations or trainings collections are modified directly.
+     */
+    public void invalidateOccupancy() {
+        occupancy = null;
     }
 
     /**
      * Checks if the court is available for the given time period.
      * The court is considered available if there are no overlapping reservations or trainings.
+     * While the bookings of a court loaded from the database are not loaded, they are queried by range instead.
      * @param from the start time of the period
      * @param duration the duration of the period
      * @return true if the court is available, false otherwise
      */
     public boolean isAvailable(LocalDateTime from, Duration duration) {
-        return getReservations().stream()
-                .noneMatch(r -> Util.isOverlapping(from, duration, r.getStart(), r.getDuration())) &&
-                getTrainings().stream()
-                        .noneMatch(t -> Util.isOverlapping(from, duration, t.getStart(), t.getDuration()));
+        if (occupancy == null && DBController.useRangeQuery(getReservations(), getTrainings()))
+            return !DBController.INSTANCE.isCourtBooked(this, from, duration);
+        return getOccupancy().isFree(from, duration);
     }
 
     /**
-     * Checks if there is any available time slot on the court for the given date.
+     * Checks if the court is in season at the given time, i.e. if it can be booked at all.
+     * Courts are in season all year round unless stated otherwise by a subclass.
+     * @param time the time to check
+     * @return true if the court is in season, false otherwise
+     */
+    public boolean isInSeason(LocalDateTime time) {
+        return true;
+    }
+
+    /**
+     * Checks if there is any available one-hour time slot on the court for the given date.
      * @param date the date to check
      * @return true if there is an available time slot, false otherwise
      */
     public boolean anyAvailable(LocalDate date) {
-        Duration d = Duration.between(getOpeningHour(), getClosingHour());
-        return IntStream.of((int) d.toHours()).anyMatch(h -> isAvailable(date.atTime(h, 0), Duration.ofHours(1)));
+        return getHourBitmap(date).anyFree();
+    }
+
+    /**
+     * Returns the start time of the first available one-hour time slot on the given date.
+     * @param date the date to check
+     * @return the start time of the first available hour, or empty if there is none
+     */
+    public Optional<LocalDateTime> firstAvailableHour(LocalDate date) {
+        return getHourBitmap(date).firstFree();
+    }
+
+    /**
+     * Returns the start times of all periods of the given number of available hours in a row on the given date.
+     * @param date the date to check
+     * @param hours the number of hours in a row
+     * @return the start times of the available periods, in chronological order
+     */
+    public List<LocalDateTime> availablePeriods(LocalDate date, int hours) {
+        return getHourBitmap(date).freeRuns(hours);
+    }
+
+    /**
+     * Returns the opening hours of the given date as a bitmap, built from a single pass over the day's bookings.
+     * Hours out of season are occupied. While the bookings of a court loaded from the database are not loaded,
+     * the day's bookings are queried by range instead.
+     * @param date the date
+     * @return the bitmap of the opening hours of the court
+     */
+    public HourBitmap getHourBitmap(LocalDate date) {
+        var firstHour = date.atTime(getOpeningHour());
+        int hours = (int) Duration.between(getOpeningHour(), getClosingHour()).toHours();
+        var closing = firstHour.plusHours(hours);
+
+        long occupied = 0;
+        for (int h = 0; h < hours; h++) {
+            if (!isInSeason(firstHour.plusHours(h))) occupied |= 1L << h;
+        }
+        for (TimeInterval booked : getBookedPeriods(firstHour, closing)) {
+            occupied |= HourBitmap.maskOf(firstHour, hours, booked.start(), booked.duration());
+        }
+        return new HourBitmap(firstHour, hours, occupied);
+    }
+
+    /**
+     * Returns the periods of the reservations and trainings of the court overlapping the given time period,
+     * with the occurrences of cyclical trainings generated for the period only.
+     * While the bookings of a court loaded from the database are not loaded, they are queried by range instead.
+     * @param from the start time of the period
+     * @param to the end time of the period
+     * @return the booked periods of the court
+     */
+    public List<TimeInterval> getBookedPeriods(LocalDateTime from, LocalDateTime to) {
+        if (occupancy == null && DBController.useRangeQuery(getReservations(), getTrainings())) {
+            List<TimeInterval> booked = new ArrayList<>();
+            for (Object[] booking : DBController.INSTANCE.getCourtBookings(this, from, to)) {
+                var start = (LocalDateTime) booking[0];
+                booked.add(new TimeInterval(start, start.plus((Duration) booking[1])));
+            }
+            return booked;
+        }
+        return getOccupancy().occupied(from, to).toList();
     }
 
     /**
-     * Returns the opening hour of the court from the database.
+     * Returns the opening hour of the court from the static storage snapshot.
      * @return the opening hour of the court
      */
     public static LocalTime getOpeningHour() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtOpeningHour from StaticStorage ss", LocalTime.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtOpeningHour();
     }
 
     /**
-     * Returns the closing hour of the court from the database.
+     * Returns the closing hour of the court from the static storage snapshot.
      * @return the closing hour of the court
      */
     public static LocalTime getClosingHour() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtClosingHour from StaticStorage ss", LocalTime.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtClosingHour();
     }
 
     /**
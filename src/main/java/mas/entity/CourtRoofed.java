@@ -80,39 +80,35 @@ public class CourtRoofed extends Court {
     }
 
     /**
-     * Returns the price per hour for a roofed court from the database.
+     * Returns the price per hour for a roofed court from the static storage snapshot.
      * @return the price per hour for a roofed court
      */
     public static BigDecimal getPricePerHour() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtRoofedPricePerHour from StaticStorage ss", BigDecimal.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtRoofedPricePerHour();
     }
 
     /**
-     * Returns the heating surcharge for a roofed court from the database.
+     * Returns the heating surcharge for a roofed court from the static storage snapshot.
      * @return the heating surcharge for a roofed court
      */
     public static BigDecimal getHeatingSurcharge() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtRoofedHeatingSurcharge from StaticStorage ss", BigDecimal.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtRoofedHeatingSurcharge();
     }
 
     /**
-     * Returns the start date of the heating season for a roofed court from the database.
+     * Returns the start date of the heating season for a roofed court from the static storage snapshot.
      * @return the start date of the heating season for a roofed court
      */
     public static LocalDate getHeatingSeasonStart() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtRoofedHeatingSeasonStart from StaticStorage ss", LocalDate.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtRoofedHeatingSeasonStart();
     }
 
     /**
-     * Returns the end date of the heating season for a roofed court from the database.
+     * Returns the end date of the heating season for a roofed court from the static storage snapshot.
      * @return the end date of the heating season for a roofed court
      */
     public static LocalDate getHeatingSeasonEnd() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtRoofedHeatingSeasonEnd from StaticStorage ss", LocalDate.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtRoofedHeatingSeasonEnd();
     }
 
     /**
@@ -44,9 +44,18 @@ public class CourtUnroofed extends Court {
      */
     @Override
     public boolean isAvailable(LocalDateTime from, Duration duration) {
-        return from.isAfter(getSeasonStart().atStartOfDay()) &&
-                from.isBefore(getSeasonEnd().atStartOfDay()) &&
-                super.isAvailable(from, duration);
+        return isInSeason(from) && super.isAvailable(from, duration);
+    }
+
+    /**
+     * Checks if the given time falls within the season start and end dates.
+     * @param time the time to check
+     * @return true if the court is in season, false otherwise
+     */
+    @Override
+    public boolean isInSeason(LocalDateTime time) {
+        return time.isAfter(getSeasonStart().atStartOfDay()) &&
+                time.isBefore(getSeasonEnd().atStartOfDay());
     }
 
     /**
@@ -62,30 +71,27 @@ public class CourtUnroofed extends Court {
     }
 
     /**
-     * Returns the price per hour for an unroofed court from the database.
+     * Returns the price per hour for an unroofed court from the static storage snapshot.
      * @return the price per hour for an unroofed court
      */
     public static BigDecimal getPricePerHour() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtUnroofedPricePerHour from StaticStorage ss", BigDecimal.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtUnroofedPricePerHour();
     }
 
     /**
-     * Returns the start date of the season for an unroofed court from the database.
+     * Returns the start date of the season for an unroofed court from the static storage snapshot.
      * @return the start date of the season for an unroofed court
      */
     public static LocalDate getSeasonStart() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtUnroofedSeasonStart from StaticStorage ss", LocalDate.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtUnroofedSeasonStart();
     }
 
     /**
-     * Returns the end date of the season for an unroofed court from the database.
+     * Returns the end date of the season for an unroofed court from the static storage snapshot.
      * @return the end date of the season for an unroofed court
      */
     public static LocalDate getSeasonEnd() {
-        return DBController.INSTANCE.getEm()
-                .createQuery("select ss.courtUnroofedSeasonEnd from StaticStorage ss", LocalDate.class).getSingleResult();
+        return DBController.INSTANCE.getStaticStorageSnapshot().courtUnroofedSeasonEnd();
     }
 
     /**
@@ -4,15 +4,32 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import mas.service.PricingEngine;
+import mas.util.TimeInterval;
+import mas.util.TimeUnavailableException;
+import org.hibernate.TypeMismatchException;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
- * Represents a cyclical training in a tennis court management application.
- * It extends the base Training class and adds properties related to cyclical trainings.
+ * Represents a cyclical training in a tennis court management application, e.g. a weekly group training
+ * lasting a whole season. It extends the base Training class with a {@link RecurrenceRule}: the training
+ * takes place at the time of day and for the duration of its first occurrence on every day of the rule.
+ * <p>
+ * The occurrences are never stored, they are generated from the rule for the period asked about only.
+ * The persisted end time of the training is the end of the last day of the rule, so range queries
+ * on the start and end times of trainings find the series whenever a period falls within it.
  */
 @Entity
 @Getter
@@ -21,38 +38,200 @@ import java.util.List;
 public class CyclicalTraining extends Training {
 
     /**
-     * The list of start times for each training.
+     * The rule of the days the training takes place on.
      */
-    @ElementCollection
-    @Column(nullable = false)
-    private List<LocalDateTime> cyclicStarts;
+    @Embedded
+    private RecurrenceRule rule;
+
+    private CyclicalTraining(LocalDateTime start, Duration duration, RecurrenceRule rule) {
+        this.rule = rule;
+        setStart(start);
+        setDuration(duration);
+        setIsPaid(false);
+    }
+
+    /**
+     * Sets the rule of the training and updates its end time.
+     * @param rule the rule of the days the training takes place on
+     */
+    public void setRule(RecurrenceRule rule) {
+        this.rule = rule;
+        updateEnd();
+    }
+
+    /**
+     * Computes the end time of the series: the end of the occurrence on the last day of the rule.
+     * @return the latest time the last occurrence may end
+     */
+    @Override
+    protected LocalDateTime computeEnd() {
+        var end = super.computeEnd();
+        if (rule == null) return end;
+        var last = rule.getUntil().atTime(getStart().toLocalTime()).plus(getDuration());
+        return last.isAfter(end) ? last : end;
+    }
+
+    /**
+     * Creates a new cyclical training, checking the whole series against the bookings of the court and the trainer
+     * with a single range lookup each, instead of checking every occurrence on its own.
+     * @param client the client participating in the training
+     * @param participant the participant in the training
+     * @param trainer the trainer assigned to the training
+     * @param court the court assigned to the training
+     * @param from the start time of the first occurrence
+     * @param duration the duration of every occurrence
+     * @param rule the rule of the days the training takes place on, starting with the day of the first occurrence
+     * @return the newly created cyclical training
+     * @throws IllegalArgumentException if the first occurrence is not on a day of the rule
+     * @throws TimeUnavailableException if the trainer does not work or the court is not in season at the time
+     * of the training on any of its days, or any occurrence overlaps a booking of the court or the trainer
+     * @throws TypeMismatchException if the client or participant is not of the appropriate type
+     */
+    public static CyclicalTraining makeReservation(Person client, Person participant, Trainer trainer, Court court,
+                                                   LocalDateTime from, Duration duration, RecurrenceRule rule) {
+        if (!rule.occursOn(from.toLocalDate(), from.toLocalDate())) {
+            throw new IllegalArgumentException("The first occurrence has to be on a day of the rule: " + from);
+        }
+        if (!client.getPersonTypes().contains(Person.PersonType.CLIENT)) {
+            throw new TypeMismatchException("Person referred as client is not a Client instance");
+        }
+        if (!participant.getPersonTypes().contains(Person.PersonType.PARTICIPANT)) {
+            throw new TypeMismatchException("Person referred as participant is not a Participant instance");
+        }
+
+        var series = new CyclicalTraining(from, duration, rule);
+        // the working hours repeat every week, so the first occurrence on each day of the week is enough,
+        // skipping the days after the last day or excluded from the rule
+        Set<DayOfWeek> checked = EnumSet.noneOf(DayOfWeek.class);
+        int days = rule.getDays().size();
+        for (var dates = rule.dates(from.toLocalDate(), from.toLocalDate(), rule.getUntil()).iterator();
+             checked.size() < days && dates.hasNext(); ) {
+            var date = dates.next();
+            if (!checked.add(date.getDayOfWeek())) continue;
+            var start = date.atTime(from.toLocalTime());
+            var window = trainer.getWorkingWindow(date);
+            if (window.isEmpty() || !window.get().contains(start, start.plus(duration))) {
+                throw new TimeUnavailableException(trainer, start, duration);
+            }
+        }
+        // the season is a single range of days, so the first and the last occurrence are enough
+        var last = series.getLastStart();
+        if (!court.isInSeason(from) || !court.isInSeason(last)) {
+            throw new TimeUnavailableException(court, court.isInSeason(from) ? last : from, duration);
+        }
+        var courtConflict = series.findConflict(court.getBookedPeriods(from, series.getEnd()));
+        if (courtConflict.isPresent()) {
+            throw new TimeUnavailableException(court, courtConflict.get(), duration);
+        }
+        var trainerConflict = series.findConflict(trainer.getBookedPeriods(from, series.getEnd()));
+        if (trainerConflict.isPresent()) {
+            throw new TimeUnavailableException(trainer, trainerConflict.get(), duration);
+        }
+
+        series.setCourt(court);
+        series.setTrainer(trainer);
+        series.addClients(client);
+        series.addParticipants(participant);
+        return series;
+    }
+
+    /**
+     * Checks if the training takes place on more than one day.
+     * @return true if the training has a rule, false otherwise
+     */
+    @Override
+    public boolean isRecurring() {
+        return rule != null;
+    }
 
     /**
-     * The list of durations for each training.
+     * Returns the occurrences of the training overlapping the given time period,
+     * generated from the rule for the days of the period only.
+     * @param from the start time of the period
+     * @param to the end time of the period
+     * @return the overlapping occurrences, in chronological order
      */
-    @ElementCollection
-    @Column(nullable = false)
-    private List<Duration> cyclicDurations;
+    @Override
+    public Stream<TimeInterval> occurrences(LocalDateTime from, LocalDateTime to) {
+        if (rule == null) return super.occurrences(from, to);
+        LocalTime time = getStart().toLocalTime();
+        return rule.dates(getStart().toLocalDate(), from.minus(getDuration()).toLocalDate(), to.toLocalDate())
+                .map(date -> new TimeInterval(date.atTime(time), date.atTime(time).plus(getDuration())))
+                .filter(o -> o.start().isBefore(to) && from.isBefore(o.end()));
+    }
+
+    /**
+     * Returns the start times of all occurrences of the training, generated lazily.
+     * @return the start times of the occurrences, in chronological order
+     */
+    public Stream<LocalDateTime> getOccurrenceStarts() {
+        return occurrences(getStart(), getEnd()).map(TimeInterval::start);
+    }
+
+    /**
+     * Returns the number of occurrences of the training.
+     * @return the number of occurrences
+     */
+    public long getOccurrenceCount() {
+        return getOccurrenceStarts().count();
+    }
+
+    /**
+     * Returns the start time of the last occurrence of the training.
+     * @return the start time of the last occurrence
+     */
+    public LocalDateTime getLastStart() {
+        return getOccurrenceStarts().reduce((a, b) -> b).orElse(getStart());
+    }
+
+    /**
+     * Finds the earliest occurrence of the training overlapping any of the given booked periods.
+     * Every period is checked against the occurrences on its own days only, so the whole series is checked
+     * in a single pass over the periods.
+     * @param booked the booked periods, e.g. of the court or the trainer during the series
+     * @return the start time of the earliest conflicting occurrence, or empty if there is none
+     */
+    public Optional<LocalDateTime> findConflict(Collection<TimeInterval> booked) {
+        return booked.stream()
+                .flatMap(period -> occurrences(period.start(), period.end()).limit(1))
+                .map(TimeInterval::start)
+                .min(Comparator.naturalOrder());
+    }
 
     /**
-     * Constructs a CyclicalTraining with the given cyclic starts and durations.
-     * @param cyclicStarts the list of start times for each cycle
-     * @param cyclicDurations the list of durations for each cycle
+     * Returns the total price of all occurrences of the training, priced by the {@link PricingEngine}
+     * occurrence by occurrence, since the heating surcharge depends on the day.
+     * @return the total price of the series
      */
-    public CyclicalTraining(List<LocalDateTime> cyclicStarts, List<Duration> cyclicDurations) {
-        this.cyclicStarts = cyclicStarts;
-        this.cyclicDurations = cyclicDurations;
+    @Override
+    public BigDecimal getTotalPrice() {
+        return PricingEngine.toAmount(getOccurrenceStarts()
+                .mapToLong(start -> PricingEngine.INSTANCE.quote(toRequest(start)).total())
+                .sum());
     }
 
     /**
-     * Returns the total price per participant for the cyclical training.
-     * The total price per participant is calculated based on the price per participant per training
-     * and the number of trainings in the cycle.
+     * Returns the total price per participant for the cyclical training:
+     * the total price of all occurrences split evenly among the participants.
      * @return the total price per participant for the cyclical training
-     * @throws UnsupportedOperationException because it is out of the project scope
      */
     public BigDecimal getTotalPricePerParticipant() {
-        throw new UnsupportedOperationException("Not implemented.");
+        int participants = Math.max(1, getParticipants().size());
+        return getTotalPrice().divide(BigDecimal.valueOf(participants), RoundingMode.HALF_UP);
     }
 
+    /**
+     * Returns the string representation of the CyclicalTraining object.
+     * @return the string representation of the CyclicalTraining object
+     */
+    @Override
+    public String toString() {
+        return "CyclicalTraining{" +
+                "start=" + getStart() +
+                ", duration=" + getDuration() +
+                ", trainer=" + getTrainer().getId() +
+                ", court=" + getCourt().getNumber() +
+                ", rule=" + rule +
+                '}';
+    }
 }
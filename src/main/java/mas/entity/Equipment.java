@@ -1,10 +1,16 @@
 package mas.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import mas.util.Util;
+import mas.util.DBController;
+import mas.util.IntervalIndex;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -16,6 +22,8 @@ import java.util.Set;
  * It is an abstract class providing common properties and methods for equipment.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -29,6 +37,14 @@ public abstract class Equipment {
     @Column(nullable = false)
     private Long id;
 
+    /**
+     * The version of the equipment, so concurrent changes of the equipment are detected on commit.
+     * Concurrent bookings are detected on the {@link SlotClaim}s of the equipment's days instead.
+     */
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     /**
      * Additional notes or description about the equipment.
      */
@@ -38,6 +54,7 @@ public abstract class Equipment {
      * The set of trainings associated with this equipment.
      */
     @ManyToMany(mappedBy = "equipmentSet")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Training> trainings = new HashSet<>();
 
     /**
@@ -47,8 +64,8 @@ public abstract class Equipment {
      */
     public void addTrainings(Training... trainings) {
         for (Training t : trainings) {
-            if (!this.getTrainings().contains(t)) {
-                this.getTrainings().add(t);
+            if (this.getTrainings().add(t)) {
+                if (occupancy != null) occupancy.add(t);
                 t.addEquipment(this);
             }
         }
@@ -63,11 +80,74 @@ public abstract class Equipment {
         for (Training t : trainings) {
             if (this.getTrainings().contains(t)) {
                 this.getTrainings().remove(t);
+                if (occupancy != null) occupancy.remove(t);
                 t.removeEquipment(this);
             }
         }
     }
 
+    /**
+     * Index of the equipment's bookings sorted by their start time.
+     * It is built from the collections on first use and then kept in sync by the add/remove methods.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private IntervalIndex<Booking> occupancy;
+
+    /**
+     * Returns the occupancy index of the equipment, building it from the bookings if needed.
+     * @return the occupancy index of the equipment
+     */
+    IntervalIndex<Booking> getOccupancy() {
+        if (occupancy == null) {
+            IntervalIndex<Booking> index = new IntervalIndex<>();
+            indexBookings(index);
+            occupancy = index;
+        }
+        return occupancy;
+    }
+
+    /**
+     * Adds the bookings of the equipment to the given new occupancy index: its trainings, unless stated otherwise by a subclass.
+     * @param index the index to add the bookings to
+     */
+    void indexBookings(IntervalIndex<Booking> index) {
+        getTrainings().forEach(index::add);
+    }
+
+    /**
+     * Checks if the occupancy index of the equipment has been built.
+     * @return true if the index is built, false otherwise
+     */
+    boolean isOccupancyBuilt() {
+        return occupancy != null;
+    }
+
+    /**
+     * Adds the given booking to the occupancy index, if it has been built.
+     * @param booking the booking to add
+     */
+    void index(Booking booking) {
+        if (occupancy != null) occupancy.add(booking);
+    }
+
+    /**
+     * Removes the given booking from the occupancy index, if it has been built.
+     * @param booking the booking to remove
+     */
+    void unindex(Booking booking) {
+        if (occupancy != null) occupancy.remove(booking);
+    }
+
+    /**
+     * Discards the occupancy index, so it gets rebuilt from the collections on next use.
+     * Needs to be called after the bookings collections are modified directly.
+     */
+    public void invalidateOccupancy() {
+        occupancy = null;
+    }
+
     /**
      * Constructs an instance of Equipment class with the given notes.
      * @param notes the additional notes or description about the equipment
@@ -77,25 +157,27 @@ public abstract class Equipment {
     }
 
     /**
-     * Returns an array of available equipment instances for the specified time and duration.
-     * This method is not implemented and is out of the project scope.
+     * Returns all equipment free during the whole specified period, looked up with a single query
+     * over the equipment pool.
      * @param time the starting time of the availability check
      * @param duration the duration of the availability check
-     * @return an array of available equipment instances
-     * @throws UnsupportedOperationException because it is out of the project scope
+     * @return an array of the available equipment, ordered by identifier
      */
-    public Equipment[] getAvailable(LocalDateTime time, Duration duration) {
-        throw new UnsupportedOperationException("Not implemented, out of project scope.");
+    public static Equipment[] getAvailable(LocalDateTime time, Duration duration) {
+        return DBController.INSTANCE.getAvailableEquipment(Equipment.class, time, duration).toArray(Equipment[]::new);
     }
 
     /**
      * Checks if the equipment is available during the specified time and duration.
+     * While the trainings of equipment loaded from the database are not loaded, they are queried by range instead.
      * @param from the starting time of the availability check
      * @param duration the duration of the availability check
      * @return true if the equipment is available, false otherwise
      */
     public boolean isAvailable(LocalDateTime from, Duration duration) {
-        return getTrainings().stream().noneMatch(t -> Util.isOverlapping(from, duration, t.getStart(), t.getDuration()));
+        if (occupancy == null && DBController.useRangeQuery(getTrainings()))
+            return !DBController.INSTANCE.isEquipmentBooked(this, from, duration);
+        return getOccupancy().isFree(from, duration);
     }
 
     /**
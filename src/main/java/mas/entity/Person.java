@@ -5,6 +5,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.TypeMismatchException;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -171,6 +173,7 @@ public class Person {
      * Set of reservations bought by the client.
      */
     @OneToMany(mappedBy = "client")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Reservation> reservationsBought = new HashSet<>();
 
     /**
@@ -218,6 +221,7 @@ public class Person {
      * Set of reservations for this participant.
      */
     @OneToMany(mappedBy = "participant")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Reservation> reservations = new HashSet<>();
 
     /**
@@ -242,6 +246,7 @@ public class Person {
      * Set of trainings for this participant.
      */
     @ManyToMany(mappedBy = "participants")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Training> trainings = new HashSet<>();
 
     /**
@@ -280,6 +285,7 @@ public class Person {
      * Set of trainings bought by the client.
      */
     @ManyToMany(mappedBy = "clients")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Training> trainingsBought = new HashSet<>();
 
     /**
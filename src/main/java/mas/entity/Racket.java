@@ -7,14 +7,19 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import mas.util.DBController;
-import mas.util.Util;
+import mas.util.HourBitmap;
+import mas.util.IntervalIndex;
+import mas.util.TimeInterval;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -27,6 +32,17 @@ import java.util.Set;
 @NoArgsConstructor
 public class Racket extends Equipment {
 
+    /**
+     * A racket model: rackets of the same model are interchangeable, so they can be booked from a pool
+     * by their counts instead of one by one.
+     *
+     * @param manufacturer the manufacturer of the rackets
+     * @param weight       the weight of the rackets
+     * @param pricePerHour the price per hour of using the rackets
+     */
+    public record Model(String manufacturer, Double weight, BigDecimal pricePerHour) {
+    }
+
     /**
      * The manufacturer of the racket.
      */
@@ -49,6 +65,7 @@ public class Racket extends Equipment {
      * The set of reservations made for this racket.
      */
     @OneToMany(mappedBy = "racket")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Reservation> reservations = new HashSet<>();
 
     /**
@@ -58,8 +75,8 @@ public class Racket extends Equipment {
      */
     public void addReservations(Reservation... reservations) {
         for (Reservation r : reservations) {
-            if (!this.getReservations().contains(r)) {
-                this.getReservations().add(r);
+            if (this.getReservations().add(r)) {
+                index(r);
                 r.setRacket(this);
             }
         }
@@ -74,7 +91,8 @@ public class Racket extends Equipment {
         for (Reservation r : reservations) {
             if (this.getReservations().contains(r)) {
                 this.getReservations().remove(r);
-                r.setRacket(null);
+                unindex(r);
+                if (r.getRacket() == this) r.setRacket(null);
             }
         }
     }
@@ -107,8 +125,20 @@ public class Racket extends Equipment {
         this.pricePerHour = pricePerHour;
     }
 
+    /**
+     * Adds the reservations and trainings of the racket to the given new occupancy index.
+     *
+     * @param index The index to add the bookings to.
+     */
+    @Override
+    void indexBookings(IntervalIndex<Booking> index) {
+        super.indexBookings(index);
+        getReservations().forEach(index::add);
+    }
+
     /**
      * Checks if the racket is available for the given time period.
+     * While the bookings of a racket loaded from the database are not loaded, they are queried by range instead.
      *
      * @param from      The start time of the time period.
      * @param duration  The duration of the time period.
@@ -116,26 +146,89 @@ public class Racket extends Equipment {
      */
     @Override
     public boolean isAvailable(LocalDateTime from, Duration duration) {
-        return getReservations().stream().noneMatch(r -> Util.isOverlapping(from, duration, r.getStart(), r.getDuration())) &&
-                super.isAvailable(from, duration);
+        if (!isOccupancyBuilt() && DBController.useRangeQuery(getReservations(), getTrainings()))
+            return !DBController.INSTANCE.isRacketReserved(this, from, duration) && super.isAvailable(from, duration);
+        return getOccupancy().isFree(from, duration);
     }
 
     /**
-     * Checks if the racket is available for the given date.
+     * Checks if the racket is available for at least one opening hour of the given date.
      *
      * @param date  The date to check.
      * @return      True if the racket is available, false otherwise.
      */
     public boolean isAvailable(LocalDate date) {
-        var openingHours = DBController.INSTANCE.getSS().getCourtOpeningHour();
-        var closingHours = DBController.INSTANCE.getSS().getCourtClosingHour();
+        return getHourBitmap(date).anyFree();
+    }
+
+    /**
+     * Returns the opening hours of the given date as a bitmap, built from the day's bookings looked up in the
+     * occupancy index. While the bookings of a racket loaded from the database are not loaded, the day's bookings
+     * are queried by range instead.
+     *
+     * @param date  The date.
+     * @return      The bitmap of the opening hours of the racket.
+     */
+    public HourBitmap getHourBitmap(LocalDate date) {
+        var firstHour = date.atTime(Court.getOpeningHour());
+        int hours = (int) Duration.between(Court.getOpeningHour(), Court.getClosingHour()).toHours();
+        var closing = firstHour.plusHours(hours);
 
-        for (int h = openingHours.getHour(); h < closingHours.getHour(); h++) {
-            if (isAvailable(LocalDateTime.of(date, LocalTime.of(h, 0)), Duration.ofHours(1))) {
-                return true;
+        long occupied = 0;
+        if (!isOccupancyBuilt() && DBController.useRangeQuery(getReservations(), getTrainings())) {
+            for (Object[] booking : DBController.INSTANCE.getRacketBookings(this, firstHour, closing)) {
+                occupied |= HourBitmap.maskOf(firstHour, hours, (LocalDateTime) booking[0], (Duration) booking[1]);
+            }
+        } else {
+            for (TimeInterval booked : getOccupancy().occupied(firstHour, closing).toList()) {
+                occupied |= HourBitmap.maskOf(firstHour, hours, booked.start(), booked.duration());
             }
         }
-        return false;
+        return new HourBitmap(firstHour, hours, occupied);
+    }
+
+    /**
+     * Returns the model of the racket.
+     *
+     * @return The model of the racket.
+     */
+    public Model getModel() {
+        return new Model(manufacturer, weight, pricePerHour);
+    }
+
+    /**
+     * Returns all rackets free during the whole given time period, looked up with a single query over the pool.
+     *
+     * @param time      The start time of the time period.
+     * @param duration  The duration of the time period.
+     * @return          The available rackets, ordered by identifier.
+     */
+    public static Racket[] getAvailable(LocalDateTime time, Duration duration) {
+        return DBController.INSTANCE.getAvailableEquipment(Racket.class, time, duration).toArray(Racket[]::new);
+    }
+
+    /**
+     * Returns the numbers of rackets of every model free during the whole given time period,
+     * for booking rackets by model instead of one by one.
+     *
+     * @param time      The start time of the time period.
+     * @param duration  The duration of the time period.
+     * @return          The numbers of free rackets by model, models without free rackets left out.
+     */
+    public static Map<Model, Long> getAvailableCounts(LocalDateTime time, Duration duration) {
+        return DBController.INSTANCE.getAvailableRacketCounts(time, duration);
+    }
+
+    /**
+     * Picks a racket of the given model free during the whole given time period.
+     *
+     * @param model     The model of the racket.
+     * @param time      The start time of the time period.
+     * @param duration  The duration of the time period.
+     * @return          A free racket of the model, or empty if all of them are booked.
+     */
+    public static Optional<Racket> findAvailable(Model model, LocalDateTime time, Duration duration) {
+        return DBController.INSTANCE.findAvailableRacket(model, time, duration);
     }
 
     /**
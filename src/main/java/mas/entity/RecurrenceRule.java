@@ -0,0 +1,199 @@
+package mas.entity;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Represents the rule of a recurring training in a tennis court management application: the days of the week
+ * it takes place on every given number of weeks, until a given day, except for the given days.
+ * The dates are generated from the rule on demand, so a season-long series is stored as a single row.
+ * It is used as an embeddable entity.
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+public class RecurrenceRule {
+
+    /**
+     * The days of the week of the rule, bit {@code d - 1} standing for the day {@code d} of {@link DayOfWeek}.
+     */
+    @Column(name = "recurrence_days")
+    private Integer daysOfWeek;
+
+    /**
+     * The number of weeks between the weeks the rule applies to, 1 for every week.
+     */
+    @Column(name = "recurrence_interval")
+    private Integer intervalWeeks;
+
+    /**
+     * The last day the rule applies to.
+     */
+    @Column(name = "recurrence_until")
+    private LocalDate until;
+
+    /**
+     * The days excluded from the rule, e.g. holidays.
+     */
+    @ElementCollection
+    @CollectionTable(name = "training_recurrence_exceptions")
+    @Column(name = "exception_date", nullable = false)
+    private Set<LocalDate> exceptions = new HashSet<>();
+
+    /**
+     * Constructs a RecurrenceRule with the given days of the week, interval and last day.
+     *
+     * @param days          the days of the week
+     * @param intervalWeeks the number of weeks between the weeks the rule applies to, 1 for every week
+     * @param until         the last day the rule applies to
+     * @throws IllegalArgumentException if no day is given, the interval is not positive or the last day is missing
+     */
+    public RecurrenceRule(Set<DayOfWeek> days, int intervalWeeks, LocalDate until) {
+        if (days.isEmpty()) throw new IllegalArgumentException("A recurrence needs at least one day of the week");
+        if (intervalWeeks < 1) throw new IllegalArgumentException("Invalid interval of weeks: " + intervalWeeks);
+        if (until == null) throw new IllegalArgumentException("A recurrence needs a last day");
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << (day.getValue() - 1);
+        }
+        this.daysOfWeek = mask;
+        this.intervalWeeks = intervalWeeks;
+        this.until = until;
+    }
+
+    /**
+     * Creates a rule applying to the given days of every week until the given day.
+     *
+     * @param until the last day the rule applies to
+     * @param days  the days of the week
+     * @return the weekly rule
+     * @throws IllegalArgumentException if no day is given or the last day is missing
+     */
+    public static RecurrenceRule weekly(LocalDate until, DayOfWeek... days) {
+        return new RecurrenceRule(Set.of(days), 1, until);
+    }
+
+    /**
+     * Returns the days of the week of the rule.
+     *
+     * @return the days of the week
+     */
+    public Set<DayOfWeek> getDays() {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (includes(day)) days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * Excludes the given days from the rule.
+     * The persisted end time of a training with the rule depends on the last day of the rule only,
+     * so it stays valid as an upper bound of the occurrences, even if the last occurrence is excluded.
+     *
+     * @param dates the days to exclude
+     */
+    public void addExceptions(LocalDate... dates) {
+        exceptions.addAll(Set.of(dates));
+    }
+
+    /**
+     * Includes the given previously excluded days in the rule again.
+     * The days lie within the rule, so the persisted end time of a training with the rule does not change.
+     *
+     * @param dates the days to include
+     */
+    public void removeExceptions(LocalDate... dates) {
+        Set.of(dates).forEach(exceptions::remove);
+    }
+
+    /**
+     * Checks if the rule applies to the given day of the week.
+     *
+     * @param day the day of the week
+     * @return true if the rule includes the day of the week, false otherwise
+     */
+    public boolean includes(DayOfWeek day) {
+        return (daysOfWeek & 1 << (day.getValue() - 1)) != 0;
+    }
+
+    /**
+     * Checks if the rule started on the given day applies to the given date.
+     *
+     * @param first the first day of the rule
+     * @param date  the date to check
+     * @return true if the rule applies to the date, false otherwise
+     */
+    public boolean occursOn(LocalDate first, LocalDate date) {
+        return !date.isBefore(first) && !date.isAfter(until) && includes(date.getDayOfWeek())
+                && weeksBetween(first, date) % intervalWeeks == 0 && !exceptions.contains(date);
+    }
+
+    /**
+     * Returns the first date not before the given one the rule started on the given day applies to.
+     * Weeks the rule skips are jumped over as a whole.
+     *
+     * @param first the first day of the rule
+     * @param from  the earliest date to return
+     * @return the next date of the rule, or null if there is none
+     */
+    public LocalDate nextDate(LocalDate first, LocalDate from) {
+        var date = from.isBefore(first) ? first : from;
+        while (!date.isAfter(until)) {
+            long skipped = weeksBetween(first, date) % intervalWeeks;
+            if (skipped != 0) {
+                date = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(intervalWeeks - skipped);
+                continue;
+            }
+            if (includes(date.getDayOfWeek()) && !exceptions.contains(date)) return date;
+            date = date.plusDays(1);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the dates of the given range the rule started on the given day applies to, generated lazily.
+     *
+     * @param first the first day of the rule
+     * @param from  the first day of the range
+     * @param to    the last day of the range, inclusive
+     * @return the dates of the rule within the range, in chronological order
+     */
+    public Stream<LocalDate> dates(LocalDate first, LocalDate from, LocalDate to) {
+        return Stream.iterate(nextDate(first, from), date -> date != null && !date.isAfter(to),
+                date -> nextDate(first, date.plusDays(1)));
+    }
+
+    private static long weeksBetween(LocalDate first, LocalDate date) {
+        return ChronoUnit.WEEKS.between(first.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+    }
+
+    /**
+     * Returns a string representation of the RecurrenceRule object.
+     *
+     * @return a string representation of the RecurrenceRule object
+     */
+    @Override
+    public String toString() {
+        return "RecurrenceRule{" +
+                "days=" + getDays() +
+                ", intervalWeeks=" + intervalWeeks +
+                ", until=" + until +
+                ", exceptions=" + exceptions +
+                '}';
+    }
+}
@@ -1,9 +1,12 @@
 package mas.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import mas.service.BookingRequest;
+import mas.service.PricingEngine;
 import mas.util.TimeUnavailableException;
 import org.hibernate.TypeMismatchException;
 
@@ -16,21 +19,61 @@ import java.util.Optional;
  * Represents a reservation for a tennis court in the Tennis Courts management application.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_reservation_court_end", columnList = "court_id, end_time, start"),
+        @Index(name = "idx_reservation_racket_end", columnList = "racket_id, end_time, start"),
+        @Index(name = "idx_reservation_start", columnList = "start")
+})
 @Getter
 @Setter
 @NoArgsConstructor
-public class Reservation {
+public class Reservation implements Booking {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(nullable = false)
     private Long id;
 
+    /**
+     * The start time of the reservation, set on creation only,
+     * since the reservation is indexed by it in its court.
+     */
     @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
     private LocalDateTime start;
 
+    /**
+     * The duration of the reservation, set on creation only,
+     * since the reservation is indexed by it in its court.
+     */
     @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
     private Duration duration;
 
+    /**
+     * The end time of the reservation, derived from the start and duration and persisted,
+     * so the overlap of reservations can be checked by an indexed query.
+     */
+    @Column(name = "end_time")
+    @Setter(AccessLevel.NONE)
+    private LocalDateTime end;
+
+    /**
+     * Returns the end time of the reservation.
+     *
+     * @return the end time of the reservation
+     */
+    @Override
+    public LocalDateTime getEnd() {
+        if (end == null) updateEnd();
+        return end;
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void updateEnd() {
+        end = start == null || duration == null ? null : start.plus(duration);
+    }
+
     @Column(nullable = false)
     private Boolean isPaid;
 
@@ -70,7 +113,7 @@ public class Reservation {
      */
     public void setCourt(Court court) {
         if (this.getCourt() != null && this.getCourt().equals(court)) return;
-        if (this.getCourt() != null) this.getCourt().getReservations().remove(this);
+        if (this.getCourt() != null) this.getCourt().removeReservations(this);
         this.court = court;
         if (this.getCourt() != null) this.getCourt().addReservations(this);
     }
@@ -136,7 +179,7 @@ public class Reservation {
      */
     public void setRacket(Racket racket) {
         if (this.getRacket() != null && this.getRacket().equals(racket)) return;
-        if (this.getRacket() != null) this.getRacket().getReservations().remove(this);
+        if (this.getRacket() != null) this.getRacket().removeReservations(this);
         this.racket = racket;
         if (this.getRacket() != null) getRacket().addReservations(this);
     }
@@ -145,6 +188,7 @@ public class Reservation {
                         Person client, Person participant, String comment) {
         this.start = start;
         this.duration = duration;
+        updateEnd();
         setCourt(court);
         setRacket(racket);
         setParticipant(participant);
@@ -177,7 +221,7 @@ public class Reservation {
         if (!court.isAvailable(start, duration))
             throw new TimeUnavailableException(court, start, duration);
 
-        return new Reservation(start, duration, court, racket, participant, client, comment);
+        return new Reservation(start, duration, court, racket, client, participant, comment);
     }
 
     /**
@@ -234,28 +278,52 @@ public class Reservation {
     }
 
     /**
-     * Calculates and returns the total price of the reservation.
-     * The price is calculated based on the type of court and the duration of the reservation.
+     * Creates a new reservation with the given parameters and returns it, for importing many reservations
+     * whose availability has been checked beforehand. Neither the availability of the court is checked,
+     * nor is the reservation added to the collections of the court, racket and persons, since adding to an extra lazy
+     * collection of an entity loaded from the database queries the database, so the collections of the entities
+     * loaded before include the reservation only once they are loaded again.
+     *
+     * @param start       the start time of the reservation
+     * @param duration    the duration of the reservation
+     * @param court       the court for the reservation
+     * @param racket      the racket for the reservation (optional)
+     * @param client      the client for the reservation
+     * @param participant the participant for the reservation
+     * @param comment     the comment for the reservation
+     * @return the created reservation
+     * @throws TypeMismatchException if the participant or client is of incorrect type
+     */
+    public static Reservation makeImportedReservation(LocalDateTime start, Duration duration, Court court, Racket racket,
+                                                      Person client, Person participant, String comment) throws TypeMismatchException {
+        if (!client.getPersonTypes().contains(Person.PersonType.CLIENT))
+            throw new TypeMismatchException("First argument person type is not Client.");
+        if (!participant.getPersonTypes().contains(Person.PersonType.PARTICIPANT))
+            throw new TypeMismatchException("Second argument person type is not Participant.");
+
+        var reservation = new Reservation();
+        reservation.start = start;
+        reservation.duration = duration;
+        reservation.updateEnd();
+        reservation.court = court;
+        reservation.racket = racket;
+        reservation.client = client;
+        reservation.participant = participant;
+        reservation.setIsPaid(false);
+        reservation.setComment(comment);
+        return reservation;
+    }
+
+    /**
+     * Calculates and returns the total price of the reservation using the {@link PricingEngine}.
+     * The price is calculated based on the type of court, the date and the duration of the reservation.
      * If a racket is included in the reservation, the price is adjusted accordingly.
      *
      * @return the total price of the reservation
      */
     public BigDecimal getTotalPrice() {
-        BigDecimal totalPrice = BigDecimal.ZERO;
-        if (getCourt() instanceof CourtRoofed) {
-            totalPrice = totalPrice.add(CourtRoofed.getPricePerHour().multiply(BigDecimal.valueOf(getDuration().toHours())));
-            if (LocalDateTime.now().isAfter(CourtRoofed.getHeatingSeasonStart().atStartOfDay()) && LocalDateTime.now().isBefore(CourtRoofed.getHeatingSeasonEnd().atStartOfDay())) {
-                totalPrice = totalPrice.add(CourtRoofed.getHeatingSurcharge());
-            }
-        } else if (getCourt() instanceof CourtUnroofed) {
-            totalPrice = totalPrice.add(CourtUnroofed.getPricePerHour().multiply(BigDecimal.valueOf(getDuration().toHours())));
-        }
-
-        if (getRacket() != null) {
-            totalPrice = totalPrice.add(getRacket().getPricePerHour().multiply(BigDecimal.valueOf(getDuration().toHours())));
-        }
-
-        return totalPrice;
+        return PricingEngine.INSTANCE.quote(
+                new BookingRequest(getCourt(), getStart(), getDuration(), getRacket(), null)).totalAmount();
     }
 
     /**
@@ -0,0 +1,68 @@
+package mas.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import mas.service.SlotLockManager;
+
+import java.time.LocalDate;
+
+/**
+ * Represents the claim of a court, racket or trainer for a single day in the Tennis Courts management application.
+ * Every booking increments the versions of the claims of the days it books its resources on,
+ * so of two concurrent bookings of the same resource on the same day only the first one commits,
+ * while bookings of other resources or other days do not conflict at all.
+ * A claim row is created by the first booking of its resource on its day; of two bookings creating it at once,
+ * the second one fails on the unique constraint, which counts as a conflict as well.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = SlotClaim.UNIQUE_CONSTRAINT,
+        columnNames = {"kind", "resource_id", "claim_date"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class SlotClaim {
+
+    /**
+     * The name of the unique constraint on the resource and day of a claim.
+     */
+    public static final String UNIQUE_CONSTRAINT = "uk_slot_claim";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(nullable = false)
+    private Long id;
+
+    @Version
+    private Long version;
+
+    /**
+     * The kind of the claimed resource.
+     */
+    @Enumerated
+    @Column(nullable = false)
+    private SlotLockManager.Kind kind;
+
+    /**
+     * The identifier of the claimed court, racket or trainer.
+     */
+    @Column(name = "resource_id", nullable = false)
+    private Long resourceId;
+
+    /**
+     * The day the resource is claimed for.
+     */
+    @Column(name = "claim_date", nullable = false)
+    private LocalDate date;
+
+    /**
+     * Constructs a claim of the given slot.
+     *
+     * @param slot the claimed resource and day
+     */
+    public SlotClaim(SlotLockManager.SlotKey slot) {
+        this.kind = slot.kind();
+        this.resourceId = slot.id();
+        this.date = slot.date();
+    }
+}
@@ -4,6 +4,10 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import mas.util.DBController;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.engine.spi.SessionImplementor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -13,6 +17,8 @@ import java.time.LocalTime;
  * Entity class for persisting static values related to the Tennis Courts management application using Hibernate mechanisms.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -75,4 +81,16 @@ public class StaticStorage {
      */
     @Column(unique = true)
     private LocalDate courtUnroofedSeasonEnd;
+
+    /**
+     * Invalidates the cached snapshot of the static storage whenever the entity is written,
+     * and once more when the writing transaction completes, so the committed values are served on next read.
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    private void invalidateSnapshot() {
+        DBController.INSTANCE.invalidateStaticStorageSnapshot(
+                DBController.INSTANCE.getEm().unwrap(SessionImplementor.class));
+    }
 }
@@ -1,23 +1,35 @@
 package mas.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import mas.util.DBController;
-import mas.util.Util;
+import mas.util.IntervalIndex;
+import mas.util.TimeInterval;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import java.math.BigDecimal;
 import java.time.*;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
  * Represents a trainer in a Tennis Courts management application.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -49,6 +61,10 @@ public class Trainer {
     @Column(nullable = false)
     private Long id;
 
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @Column(nullable = false)
     private String name;
 
@@ -69,23 +85,91 @@ public class Trainer {
     private BigDecimal pricePerHour;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Map<DayOfWeek, WorkingHours> workingHours = new HashMap<>();
 
     @OneToMany(mappedBy = "trainer")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private Set<Training> trainings = new HashSet<>();
 
+    /**
+     * Index of the trainer's trainings sorted by their start time.
+     * It is built from the collection on first use and then kept in sync by the add/remove methods.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private IntervalIndex<Training> schedule;
+
+    /**
+     * Free intervals of the trainer by date, computed from the schedule on first use
+     * and then kept in sync by the add/remove methods.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<LocalDate, List<TimeInterval>> freeIntervals;
+
     /**
      * Adds a training to the trainer's set of trainings.
      *
      * @param training The training to add.
      */
     public void addTrainings(Training training) {
-        if (!getTrainings().contains(training)) {
-            getTrainings().add(training);
+        if (getTrainings().add(training)) {
+            if (schedule != null) schedule.add(training);
+            if (training.isRecurring()) {
+                // a series touches too many dates to update, they are computed again on demand
+                freeIntervals = null;
+            } else if (freeIntervals != null) {
+                var end = training.getEnd();
+                for (var date = training.getStart().toLocalDate(); date.atStartOfDay().isBefore(end); date = date.plusDays(1)) {
+                    freeIntervals.computeIfPresent(date,
+                            (d, free) -> List.copyOf(TimeInterval.subtract(free, training.getStart(), end)));
+                }
+            }
             training.setTrainer(this);
         }
     }
 
+    /**
+     * Removes the given trainings from the trainer's set of trainings.
+     * The trainings are expected to be assigned to another trainer afterwards.
+     *
+     * @param trainings The trainings to remove.
+     */
+    public void removeTrainings(Training... trainings) {
+        for (Training training : trainings) {
+            if (getTrainings().remove(training)) {
+                if (schedule != null) schedule.remove(training);
+                if (training.isRecurring()) {
+                    freeIntervals = null;
+                } else if (freeIntervals != null) {
+                    var end = training.getEnd();
+                    for (var date = training.getStart().toLocalDate(); date.atStartOfDay().isBefore(end); date = date.plusDays(1)) {
+                        freeIntervals.remove(date);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the schedule and the free intervals, so they get rebuilt from the trainings on next use.
+     * Needs to be called after the trainings collection is modified directly.
+     */
+    public void invalidateSchedule() {
+        schedule = null;
+        freeIntervals = null;
+    }
+
+    /**
+     * Discards the free intervals computed so far, keeping the schedule, so they get computed again on next use.
+     */
+    public void invalidateFreeIntervals() {
+        freeIntervals = null;
+    }
+
     /**
      * Creates a new trainer with the given information.
      *
@@ -110,45 +194,127 @@ public class Trainer {
     }
 
     /**
-     * Checks if the trainer is available at the given time.
+     * Checks if the trainer is available at the given time, i.e. if the time lies within the trainer's working hours
+     * and the opening hours of the courts and does not overlap any of the trainer's trainings.
+     * While the trainings of a trainer loaded from the database are not loaded, they are queried by range instead.
      *
      * @param from     The starting time to check.
      * @param duration The duration to check.
      * @return {@code true} if the trainer is available, {@code false} otherwise.
      */
     public boolean isAvailable(LocalDateTime from, Duration duration) {
-        if (!workingHours.containsKey(from.getDayOfWeek())) {
+        var to = from.plus(duration);
+        var window = getWorkingWindow(from.toLocalDate());
+        if (window.isEmpty() || !window.get().contains(from, to)) {
             return false;
         }
 
-        WorkingHours workingHours = getWorkingHours().get(from.getDayOfWeek());
-        return !workingHours.getStartTime().isAfter(from.toLocalTime()) &&
-                !workingHours.getEndTime().isBefore(from.plus(duration).toLocalTime()) &&
-                getTrainings().stream().noneMatch(t -> Util.isOverlapping(from, duration, t.getStart(), t.getDuration()));
+        if (schedule == null && DBController.useRangeQuery(getTrainings())) {
+            return !DBController.INSTANCE.isTrainerBooked(this, from, duration);
+        }
+        return getFreeIntervals(from.toLocalDate()).stream().anyMatch(i -> i.contains(from, to));
     }
 
     /**
-     * Checks if the trainer is available on the given date.
+     * Checks if the trainer is available for at least one full hour on the given date.
      *
      * @param date The date to check.
      * @return {@code true} if the trainer is available, {@code false} otherwise.
      */
     public boolean isAvailable(LocalDate date) {
-        if (workingHours.containsKey(date.getDayOfWeek())) {
-            var workingHours = getWorkingHours().get(date.getDayOfWeek());
-            var courtOpeningHour = DBController.INSTANCE.getStaticStorage().getCourtOpeningHour();
-            var courtClosingHour = DBController.INSTANCE.getStaticStorage().getCourtClosingHour();
+        return getFreeIntervals(date).stream().anyMatch(TimeInterval::containsFullHour);
+    }
 
-            var earliestPossible = workingHours.getStartTime().isAfter(courtOpeningHour) ? workingHours.getStartTime() : courtOpeningHour;
-            var latestPossible = workingHours.getEndTime().isBefore(courtClosingHour) ? workingHours.getEndTime() : courtClosingHour;
+    /**
+     * Returns the part of the given date the trainer may train in: the trainer's working hours
+     * intersected with the opening hours of the courts.
+     *
+     * @param date The date.
+     * @return The working window of the date, or empty if the trainer does not work then.
+     */
+    public Optional<TimeInterval> getWorkingWindow(LocalDate date) {
+        var hours = getWorkingHours().get(date.getDayOfWeek());
+        if (hours == null) {
+            return Optional.empty();
+        }
+        var start = hours.getStartTime().isAfter(Court.getOpeningHour()) ? hours.getStartTime() : Court.getOpeningHour();
+        var end = hours.getEndTime().isBefore(Court.getClosingHour()) ? hours.getEndTime() : Court.getClosingHour();
+        if (!start.isBefore(end)) {
+            return Optional.empty();
+        }
+        return Optional.of(new TimeInterval(date.atTime(start), date.atTime(end)));
+    }
 
-            for (int h = earliestPossible.getHour(); h < latestPossible.getHour(); h++) {
-                if (isAvailable(LocalDateTime.of(date, LocalTime.of(h, 0)), Duration.ofHours(1))) {
-                    return true;
-                }
+    /**
+     * Returns the free intervals of the trainer on the given date: the working window of the date
+     * without the periods of the trainer's trainings.
+     * While the trainings of a trainer loaded from the database are not loaded, the trainings of the date
+     * are queried by range instead; otherwise the intervals are computed once per date and then kept up to date.
+     *
+     * @param date The date.
+     * @return The free intervals in chronological order, empty if the trainer is not available on the date.
+     */
+    public List<TimeInterval> getFreeIntervals(LocalDate date) {
+        var window = getWorkingWindow(date);
+        if (window.isEmpty()) {
+            return List.of();
+        }
+
+        if (schedule == null && DBController.useRangeQuery(getTrainings())) {
+            List<TimeInterval> free = List.of(window.get());
+            for (var training : getBookedPeriods(window.get().start(), window.get().end())) {
+                free = TimeInterval.subtract(free, training.start(), training.end());
             }
+            return free;
+        }
+
+        if (freeIntervals == null) {
+            freeIntervals = new HashMap<>();
+        }
+        return freeIntervals.computeIfAbsent(date, d -> {
+            List<TimeInterval> free = List.of(window.get());
+            for (var training : getBookedPeriods(window.get().start(), window.get().end())) {
+                free = TimeInterval.subtract(free, training.start(), training.end());
+            }
+            return List.copyOf(free);
+        });
+    }
+
+    /**
+     * Returns the periods of the trainer's trainings overlapping the given time period, in chronological order,
+     * with the occurrences of cyclical trainings generated for the period only.
+     * While the trainings of a trainer loaded from the database are not loaded, they are queried by range instead.
+     *
+     * @param from The start time of the period.
+     * @param to   The end time of the period.
+     * @return The booked periods of the trainer.
+     */
+    public List<TimeInterval> getBookedPeriods(LocalDateTime from, LocalDateTime to) {
+        if (schedule == null && DBController.useRangeQuery(getTrainings())) {
+            List<TimeInterval> booked = new ArrayList<>();
+            for (Object[] training : DBController.INSTANCE.getTrainerBookings(this, from, to)) {
+                var start = (LocalDateTime) training[0];
+                booked.add(new TimeInterval(start, start.plus((Duration) training[1])));
+            }
+            return booked;
+        }
+        return getSchedule().occupied(from, to)
+                .sorted(Comparator.comparing(TimeInterval::start))
+                .toList();
+    }
+
+    /**
+     * Returns the schedule of the trainer, building it from the trainings if needed.
+     *
+     * @return The schedule of the trainer.
+     */
+    private IntervalIndex<Training> getSchedule() {
+        if (schedule == null) {
+            IntervalIndex<Training> index = new IntervalIndex<>();
+            getTrainings().forEach(index::add);
+            schedule = index;
         }
-        return false;
+        return schedule;
     }
 
     /**
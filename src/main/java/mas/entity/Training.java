@@ -1,9 +1,12 @@
 package mas.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import mas.service.BookingRequest;
+import mas.service.PricingEngine;
 import mas.util.TimeUnavailableException;
 import org.hibernate.TypeMismatchException;
 
@@ -18,10 +21,15 @@ import java.util.Set;
  * Represents a training session in the Tennis Courts management application.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_training_court_end", columnList = "court_id, end_time, start"),
+        @Index(name = "idx_training_trainer_end", columnList = "trainer_id, end_time, start"),
+        @Index(name = "idx_training_start", columnList = "start")
+})
 @Getter
 @Setter
 @NoArgsConstructor
-public class Training {
+public class Training implements Booking {
 
     /**
      * The unique identifier of the training.
@@ -43,6 +51,62 @@ public class Training {
     @Column(nullable = false)
     private Duration duration;
 
+    /**
+     * The end time of the training, derived from the start and duration and persisted,
+     * so the overlap of trainings can be checked by an indexed query.
+     */
+    @Column(name = "end_time")
+    @Setter(AccessLevel.NONE)
+    private LocalDateTime end;
+
+    /**
+     * Sets the start time of the training and updates its end time.
+     * Not public, since the training is indexed by its start in its court and trainer once created.
+     *
+     * @param start The start time to be set
+     */
+    protected void setStart(LocalDateTime start) {
+        this.start = start;
+        updateEnd();
+    }
+
+    /**
+     * Sets the duration of the training and updates its end time.
+     * Not public, since the training is indexed by its duration in its court and trainer once created.
+     *
+     * @param duration The duration to be set
+     */
+    protected void setDuration(Duration duration) {
+        this.duration = duration;
+        updateEnd();
+    }
+
+    /**
+     * Returns the end time of the training.
+     *
+     * @return The end time of the training
+     */
+    @Override
+    public LocalDateTime getEnd() {
+        if (end == null) updateEnd();
+        return end;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void updateEnd() {
+        end = start == null || duration == null ? null : computeEnd();
+    }
+
+    /**
+     * Computes the persisted end time of the training from its start and duration.
+     *
+     * @return The end time of the training
+     */
+    protected LocalDateTime computeEnd() {
+        return start.plus(duration);
+    }
+
     /**
      * Indicates whether the training session is paid.
      */
@@ -66,7 +130,7 @@ public class Training {
             return;
         }
         if (this.trainer != null) {
-            this.trainer.getTrainings().remove(this);
+            this.trainer.removeTrainings(this);
         }
         this.trainer = trainer;
         getTrainer().addTrainings(this);
@@ -212,6 +276,7 @@ public class Training {
                      List<Equipment> equipmentList) {
         this.start = start;
         this.duration = duration;
+        updateEnd();
         setCourt(court);
         // -- end needed non-null for hashcode
         setTrainer(trainer);
@@ -252,6 +317,45 @@ public class Training {
         return new Training(from, duration, trainer, court, List.of(client), List.of(participant), List.of());
     }
 
+    /**
+     * Creates a new training session for importing many trainings whose availability has been checked beforehand.
+     * Neither the availability of the trainer and court is checked, nor is the training added to the collections
+     * of the trainer, court, equipment and persons, since adding to an extra lazy collection of an entity loaded
+     * from the database queries the database, so the collections of the entities loaded before include the training
+     * only once they are loaded again.
+     *
+     * @param client      The client participating in the training
+     * @param participant The participant in the training
+     * @param trainer     The trainer assigned to the training
+     * @param court       The court assigned to the training
+     * @param from        The start time of the training
+     * @param duration    The duration of the training
+     * @param equipment   The equipment used in the training
+     * @return The newly created training session
+     * @throws TypeMismatchException If the client or participant is not of the appropriate type
+     */
+    public static Training makeImportedTraining(Person client, Person participant, Trainer trainer, Court court,
+                                                LocalDateTime from, Duration duration, Equipment... equipment) {
+        if (!client.getPersonTypes().contains(Person.PersonType.CLIENT)) {
+            throw new TypeMismatchException("Person referred as client is not a Client instance");
+        }
+        if (!participant.getPersonTypes().contains(Person.PersonType.PARTICIPANT)) {
+            throw new TypeMismatchException("Person referred as participant is not a Participant instance");
+        }
+
+        var training = new Training();
+        training.start = from;
+        training.duration = duration;
+        training.updateEnd();
+        training.court = court;
+        training.trainer = trainer;
+        training.isPaid = false;
+        training.clients.add(client);
+        training.participants.add(participant);
+        training.equipmentSet.addAll(List.of(equipment));
+        return training;
+    }
+
     /**
      * Marks the training session as paid.
      * This method is out of scope for this project and is not implemented.
@@ -274,6 +378,30 @@ public class Training {
         throw new UnsupportedOperationException("Not implemented (out of scope)");
     }
 
+    /**
+     * Calculates and returns the total price of the training using the {@link PricingEngine}.
+     * The price includes the court, the trainer and a racket if one is among the training's equipment.
+     *
+     * @return the total price of the training
+     */
+    public BigDecimal getTotalPrice() {
+        return PricingEngine.INSTANCE.quote(toRequest(getStart())).totalAmount();
+    }
+
+    /**
+     * Returns the training as a booking to be priced, starting at the given time.
+     *
+     * @param start The start time of the booking
+     * @return The booking of the training's court, trainer and racket, if any
+     */
+    protected BookingRequest toRequest(LocalDateTime start) {
+        Racket racket = getEquipmentSet().stream()
+                .filter(Racket.class::isInstance)
+                .map(Racket.class::cast)
+                .findFirst().orElse(null);
+        return new BookingRequest(getCourt(), start, getDuration(), racket, getTrainer());
+    }
+
     /**
      * Retrieves the price per participant per training.
      * This method is out of scope for this project and is not implemented.
@@ -25,6 +25,7 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -48,6 +49,8 @@ public class CourtReservationController {
 
     private final List<TableColumn<Court, Boolean>> hourColumns = new ArrayList<>();
 
+    private AvailabilityMatrix availabilityMatrix;
+
     private final WeakAdapter weakAdapter = new WeakAdapter();
 
     @FXML
@@ -149,47 +152,16 @@ public class CourtReservationController {
                     return;
                 }
 
-                var rackets = DBController.INSTANCE.getRackets();
-                var racketsToday = rackets.stream().filter(racket -> racket.isAvailable(datePicker.getValue())).toList();
-                var racketsAtTime = racketsToday.stream().filter(racket -> racket.isAvailable(
-                        SessionData.reservationStartProperty().getValue(),
-                        SessionData.reservationDurationProperty().getValue())).toList();
-
-                if (racketsAtTime.isEmpty()) {
-                    if (racketsToday.isEmpty()) {
-                        racketComboBox.getItems().clear();
-
-                        racketComboBox.setPromptText("Brak dostępnych rakiet");
-                        Alert alert = new Alert(Alert.AlertType.WARNING);
-                        alert.setTitle("Brak dostępnych rakiet");
-                        alert.setHeaderText("Brak dostępnych rakiet");
-                        alert.setContentText("Wybranego dnia wszystkie rakiety są już wypożyczone.");
-                        alert.showAndWait();
-
-                        racketCheckBox.selectedProperty().unbind();
-                        racketCheckBox.setSelected(false);
-                        racketCheckBox.disableProperty().unbind();
-                        racketCheckBox.setDisable(true);
-                    } else {
-                        racketComboBox.getItems().setAll(racketsToday);
-
-                        Alert alert = new Alert(Alert.AlertType.WARNING);
-                        alert.setTitle("Brak dostępnych rakiet");
-                        alert.setHeaderText("Brak dostępnych rakiet");
-                        alert.setContentText("Wszystkie rakiety są obecnie wypożyczone w wybranych godzinach.");
-
-                        alert.showAndWait();
-
-                        racketCheckBox.selectedProperty().unbind();
-                        racketCheckBox.setSelected(false);
-                    }
-                }
-
-                racketComboBox.getItems().setAll(racketsToday);
-                if (!racketComboBox.isDisabled()) {
-                    if (racketsAtTime.size() > 0) racketComboBox.getSelectionModel().select(racketsAtTime.get(0));
-                    else racketComboBox.getSelectionModel().selectFirst();
-                }
+                var start = SessionData.reservationStartProperty().getValue();
+                var duration = SessionData.reservationDurationProperty().getValue();
+                // the rackets of the day were loaded together with the matrix
+                var racketsToday = availabilityMatrix.getRackets().stream()
+                        .filter(r -> availabilityMatrix.isAvailable(r))
+                        .toList();
+                var racketsAtTime = racketsToday.stream()
+                        .filter(r -> availabilityMatrix.isAvailable(r, start, duration))
+                        .toList();
+                showRackets(racketsToday, racketsAtTime);
             } else {
                 racketComboBox.getItems().clear();
             }
@@ -197,6 +169,7 @@ public class CourtReservationController {
 
         // === END OF RACKET RESERVATION ===
 
+
         // bind price
         totalPriceLabel.textProperty().bind(Bindings.createStringBinding(
             () -> NumberFormat.getCurrencyInstance().format(SessionData.getTotalPrice()),
@@ -208,14 +181,28 @@ public class CourtReservationController {
 
         weakAdapter.<LocalDate>addChangeListener(datePicker.valueProperty(), (observable, oldValue, newValue) -> {
             if (newValue == null) return;
-            if (DBController.INSTANCE.getCourts().stream().noneMatch(c -> c.anyAvailable(newValue))) {
-                datePicker.setValue(oldValue);
-            } else {
-                // On valid date change:
-                refreshAvailabilityTable();
-                trainerReservationControlsRefresh();
-                racketReservationControlsRefresh();
-            }
+
+            availabilityTable.setDisable(true);
+            availabilityTable.getItems().clear();
+            availabilityTable.setPlaceholder(new Label("Wczytywanie dostępności…"));
+
+            DBExecutor.INSTANCE.submit(() -> DBController.INSTANCE.getDayAvailability(newValue))
+                    .whenCompleteAsync((matrix, error) -> {
+                        // a newer date was picked in the meantime
+                        if (!newValue.equals(datePicker.getValue())) return;
+                        availabilityTable.setPlaceholder(null);
+
+                        if (error != null) {
+                            showDatabaseError();
+                        } else if (!matrix.anyAvailable()) {
+                            datePicker.setValue(oldValue);
+                        } else {
+                            // On valid date change:
+                            refreshAvailabilityTable(matrix);
+                            trainerReservationControlsRefresh();
+                            racketReservationControlsRefresh();
+                        }
+                    }, DBExecutor.FX);
         });
 
         datePickerSetup();
@@ -253,11 +240,11 @@ public class CourtReservationController {
             var court = SessionData.courtProperty().getValue();
             if (court == null) return;
             if (newValue instanceof Trainer trainerNewValue) {
-                if (!trainerNewValue.isAvailable(SessionData.reservationStartProperty().get(), SessionData.reservationDurationProperty().get())) {
+                if (!availabilityMatrix.isAvailable(trainerNewValue, SessionData.reservationStartProperty().get(), SessionData.reservationDurationProperty().get())) {
                     comboBox.getSelectionModel().select(oldValue);
                 }
             } else if (newValue instanceof Racket racketNewValue) {
-                if (!racketNewValue.isAvailable(SessionData.reservationStartProperty().get(), SessionData.reservationDurationProperty().get())) {
+                if (!availabilityMatrix.isAvailable(racketNewValue, SessionData.reservationStartProperty().get(), SessionData.reservationDurationProperty().get())) {
                     comboBox.getSelectionModel().select(oldValue);
                 }
             }
@@ -281,10 +268,10 @@ public class CourtReservationController {
                             if (SessionData.courtProperty().getValue() == null) return false;
 
                             if (itemValue instanceof Trainer trainerItemValue) {
-                                return !trainerItemValue.isAvailable(SessionData.reservationStartProperty().get(),
+                                return !availabilityMatrix.isAvailable(trainerItemValue, SessionData.reservationStartProperty().get(),
                                         SessionData.reservationDurationProperty().get());
                             } else if (itemValue instanceof Racket racketItemValue) {
-                                return !racketItemValue.isAvailable(SessionData.reservationStartProperty().get(),
+                                return !availabilityMatrix.isAvailable(racketItemValue, SessionData.reservationStartProperty().get(),
                                         SessionData.reservationDurationProperty().get());
                             }
 
@@ -326,90 +313,155 @@ public class CourtReservationController {
             trainingCheckBox.getStyleClass().remove("marked-training-box");
             if (newValue) {
                 trainingCheckBox.getStyleClass().add("marked-training-box");
+                if (availabilityMatrix == null || !availabilityMatrix.getDate().equals(datePicker.getValue())) {
+                    // the availability of the picked day is still loading
+                    trainingCheckBox.setSelected(false);
+                    return;
+                }
                 var selected = trainerComboBox.getSelectionModel().getSelectedItem();
-
-                var trainers = DBController.INSTANCE.getTrainers();
-                var availableTrainers = trainers.stream().filter(t -> t.isAvailable(datePicker.getValue())).toList();
-
                 var court = SessionData.courtProperty().getValue();
+                var start = SessionData.reservationStartProperty().get();
+                var duration = SessionData.reservationDurationProperty().get();
+                // the trainers of the day were loaded together with the matrix
+                var availableTrainers = availabilityMatrix.getTrainers().stream()
+                        .filter(t -> availabilityMatrix.isAvailable(t))
+                        .toList();
                 var availableTrainersForMarkedHours = court != null ?
-                        trainers.stream().filter(t ->
-                                t.isAvailable(
-                                        SessionData.reservationStartProperty().get(),
-                                        SessionData.reservationDurationProperty().get())).toList()
+                        availableTrainers.stream().filter(t -> availabilityMatrix.isAvailable(t, start, duration)).toList()
                         : availableTrainers;
+                showTrainers(selected, court, availableTrainers, availableTrainersForMarkedHours);
+            }
+        };
+    }
 
-                if (availableTrainers.isEmpty()) {
-
-                    Alert alert = new Alert(Alert.AlertType.WARNING);
-                    alert.setTitle("Brak trenerów");
-                    alert.setHeaderText("Brak trenerów");
-
-                    alert.setContentText("Brak trenerów dostępnych w wybranym dniu");
-
-                    var change = new ButtonType("Zmień datę");
-                    var changeUC = new ButtonType("Rezerwuj trening\nzamiast kortu");
-                    var resignFromTraining = new ButtonType("Zrezygnuj z treningu", ButtonBar.ButtonData.CANCEL_CLOSE);
-
-                    alert.getButtonTypes().setAll(change, changeUC, resignFromTraining);
-
-                    Optional<ButtonType> result = alert.showAndWait();
-
-                    if (result.isPresent()) {
-                        if (result.get() == change) {
-                            // TODO: maybe fix datepicker not showing when hours are unselected
-                            if (court != null)
-                                court.getMarkedHours().values().forEach(v -> v.set(false));
-                            trainingCheckBox.setSelected(false);
-                            datePicker.show();
-                        } else if (result.get() == changeUC) {
-                            cancelReservationProcess();
-                        } else if (result.get() == resignFromTraining) {
-                            trainingCheckBox.selectedProperty().unbind();
-                            trainingCheckBox.setSelected(false);
-                            trainingCheckBox.disableProperty().unbind();
-                            trainingCheckBox.setDisable(true);
-                        } else throw new RuntimeException("Unexpected button type");
-                    }
-                } else if (court != null && availableTrainersForMarkedHours.isEmpty()) {
-                    Alert alert = new Alert(Alert.AlertType.WARNING);
-                    alert.setTitle("Brak trenerów");
-                    alert.setHeaderText("Brak trenerów");
-
-                    alert.setContentText("Brak trenerów dostępnych w wybranych godzinach.");
-
-                    var change = new ButtonType("Wyczyść godziny");
-                    var changeUC = new ButtonType("Rezerwuj trening\nzamiast kortu");
-                    var resignFromTraining = new ButtonType("Zrezygnuj z treningu", ButtonBar.ButtonData.CANCEL_CLOSE);
-
-                    alert.getButtonTypes().setAll(change, changeUC, resignFromTraining);
-
-                    Optional<ButtonType> result = alert.showAndWait();
-
-                    if (result.isPresent()) {
-                        if (result.get() == change) {
-                            court.getMarkedHours().values().forEach(v -> v.set(false));
-                        } else if (result.get() == changeUC) {
-                            cancelReservationProcess();
-                        } else if (result.get() == resignFromTraining) {
-                            trainingCheckBox.selectedProperty().unbind();
-                            trainingCheckBox.setSelected(false);
-                        } else throw new RuntimeException("Unexpected button type");
-                    }
-                }
+    /**
+     * Fills the trainer combo box with the trainers available on the selected day, keeping the previous selection
+     * if possible, and lets the user decide how to continue when no trainer is available.
+     */
+    private void showTrainers(Trainer selected, Court court, List<Trainer> availableTrainers,
+                              List<Trainer> availableTrainersForMarkedHours) {
+        if (availableTrainers.isEmpty()) {
+
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Brak trenerów");
+            alert.setHeaderText("Brak trenerów");
+
+            alert.setContentText("Brak trenerów dostępnych w wybranym dniu");
+
+            var change = new ButtonType("Zmień datę");
+            var changeUC = new ButtonType("Rezerwuj trening\nzamiast kortu");
+            var resignFromTraining = new ButtonType("Zrezygnuj z treningu", ButtonBar.ButtonData.CANCEL_CLOSE);
+
+            alert.getButtonTypes().setAll(change, changeUC, resignFromTraining);
+
+            Optional<ButtonType> result = alert.showAndWait();
+
+            if (result.isPresent()) {
+                if (result.get() == change) {
+                    // TODO: maybe fix datepicker not showing when hours are unselected
+                    if (court != null)
+                        court.getMarkedHours().values().forEach(v -> v.set(false));
+                    trainingCheckBox.setSelected(false);
+                    datePicker.show();
+                } else if (result.get() == changeUC) {
+                    cancelReservationProcess();
+                } else if (result.get() == resignFromTraining) {
+                    trainingCheckBox.selectedProperty().unbind();
+                    trainingCheckBox.setSelected(false);
+                    trainingCheckBox.disableProperty().unbind();
+                    trainingCheckBox.setDisable(true);
+                } else throw new RuntimeException("Unexpected button type");
+            }
+        } else if (court != null && availableTrainersForMarkedHours.isEmpty()) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Brak trenerów");
+            alert.setHeaderText("Brak trenerów");
+
+            alert.setContentText("Brak trenerów dostępnych w wybranych godzinach.");
+
+            var change = new ButtonType("Wyczyść godziny");
+            var changeUC = new ButtonType("Rezerwuj trening\nzamiast kortu");
+            var resignFromTraining = new ButtonType("Zrezygnuj z treningu", ButtonBar.ButtonData.CANCEL_CLOSE);
+
+            alert.getButtonTypes().setAll(change, changeUC, resignFromTraining);
+
+            Optional<ButtonType> result = alert.showAndWait();
+
+            if (result.isPresent()) {
+                if (result.get() == change) {
+                    court.getMarkedHours().values().forEach(v -> v.set(false));
+                } else if (result.get() == changeUC) {
+                    cancelReservationProcess();
+                } else if (result.get() == resignFromTraining) {
+                    trainingCheckBox.selectedProperty().unbind();
+                    trainingCheckBox.setSelected(false);
+                } else throw new RuntimeException("Unexpected button type");
+            }
+        }
 
-                trainerComboBox.getItems().setAll(availableTrainers);
-                if (!trainerComboBox.getItems().isEmpty()) {
-                    if (trainerComboBox.getItems().contains(selected) && availableTrainersForMarkedHours.contains(selected))
-                        trainerComboBox.getSelectionModel().select(selected);
-                    else {
-                        trainerComboBox.getSelectionModel().select(
-                                availableTrainersForMarkedHours.stream().findFirst().orElse(
-                                        availableTrainers.stream().findFirst().orElse(null)));
-                    }
-                }
+        trainerComboBox.getItems().setAll(availableTrainers);
+        if (!trainerComboBox.getItems().isEmpty()) {
+            if (trainerComboBox.getItems().contains(selected) && availableTrainersForMarkedHours.contains(selected))
+                trainerComboBox.getSelectionModel().select(selected);
+            else {
+                trainerComboBox.getSelectionModel().select(
+                        availableTrainersForMarkedHours.stream().findFirst().orElse(
+                                availableTrainers.stream().findFirst().orElse(null)));
             }
-        };
+        }
+    }
+
+    /**
+     * Fills the racket combo box with the rackets available on the selected day,
+     * warning the user when none of them is available at the marked hours.
+     */
+    private void showRackets(List<Racket> racketsToday, List<Racket> racketsAtTime) {
+        if (racketsAtTime.isEmpty()) {
+            if (racketsToday.isEmpty()) {
+                racketComboBox.getItems().clear();
+
+                racketComboBox.setPromptText("Brak dostępnych rakiet");
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Brak dostępnych rakiet");
+                alert.setHeaderText("Brak dostępnych rakiet");
+                alert.setContentText("Wybranego dnia wszystkie rakiety są już wypożyczone.");
+                alert.showAndWait();
+
+                racketCheckBox.selectedProperty().unbind();
+                racketCheckBox.setSelected(false);
+                racketCheckBox.disableProperty().unbind();
+                racketCheckBox.setDisable(true);
+            } else {
+                racketComboBox.getItems().setAll(racketsToday);
+
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Brak dostępnych rakiet");
+                alert.setHeaderText("Brak dostępnych rakiet");
+                alert.setContentText("Wszystkie rakiety są obecnie wypożyczone w wybranych godzinach.");
+
+                alert.showAndWait();
+
+                racketCheckBox.selectedProperty().unbind();
+                racketCheckBox.setSelected(false);
+            }
+        }
+
+        racketComboBox.getItems().setAll(racketsToday);
+        if (!racketComboBox.isDisabled()) {
+            if (racketsAtTime.size() > 0) racketComboBox.getSelectionModel().select(racketsAtTime.get(0));
+            else racketComboBox.getSelectionModel().selectFirst();
+        }
+    }
+
+    /**
+     * Shows an error message about a failed database operation.
+     */
+    private static void showDatabaseError() {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Błąd");
+        alert.setHeaderText("Błąd połączenia z bazą danych");
+        alert.setContentText("Nie udało się wczytać danych. Spróbuj ponownie.");
+        alert.showAndWait();
     }
 
     private void racketReservationControlsRefresh() {
@@ -453,7 +505,21 @@ public class CourtReservationController {
                     setDisable(true);
                     getStyleClass().add("past-date");
 
-                } else if (DBController.INSTANCE.getCourts().stream().noneMatch(c -> c.anyAvailable(date))) {
+                } else {
+                    var month = YearMonth.from(date);
+                    DBController.INSTANCE.getCachedMonthAvailability(month).ifPresentOrElse(
+                            this::styleAvailability,
+                            // the summary of the month is loaded once, then the cells of the month are styled
+                            () -> DBExecutor.INSTANCE.supplyAsync(() -> DBController.INSTANCE.getMonthAvailability(month))
+                                    .thenAcceptAsync(availability -> {
+                                        // the cell was reused for another date in the meantime
+                                        if (date.equals(getItem())) styleAvailability(availability);
+                                    }, DBExecutor.FX));
+                }
+            }
+
+            private void styleAvailability(MonthAvailability availability) {
+                if (!availability.anyAvailable(getItem())) {
                     setOnMouseEntered(event -> Tooltip.install(this, datePickerCloudTooltip));
                     setOnMouseExited(event -> Tooltip.uninstall(this, datePickerCloudTooltip));
                     getStyleClass().add("datepicker-no-court-available");
@@ -462,16 +528,16 @@ public class CourtReservationController {
         });
     }
 
-    private void refreshAvailabilityTable() {
+    private void refreshAvailabilityTable(AvailabilityMatrix matrix) {
+        availabilityMatrix = matrix;
 
         availabilityTable.getColumns().removeAll(hourColumns);
         availabilityTable.getItems().clear();
 
         // create hour columns
-        LocalTime startTime = Court.getOpeningHour();
-        LocalTime endTime = Court.getClosingHour();
+        LocalTime startTime = matrix.getOpeningHour();
 
-        for (int i = 0; i < Duration.between(startTime, endTime).toHours(); i++) {
+        for (int i = 0; i < matrix.getHours(); i++) {
             LocalTime hour = startTime.plusHours(i);
             TableColumn<Court, Boolean> hourColumn = new TableColumn<>(new HourColumnHeaderStrConv().toString(hour));
             hourColumn.setReorderable(false);
@@ -487,7 +553,7 @@ public class CourtReservationController {
             availabilityTable.getColumns().add(hourColumn);
         }
 
-        availabilityTable.getItems().addAll(DBController.INSTANCE.getCourts());
+        availabilityTable.getItems().addAll(matrix.getCourts());
 
         availabilityTable.getItems().forEach(c -> {
             c.getMarkedHours().clear();
@@ -536,7 +602,7 @@ public class CourtReservationController {
                         if (cell.getTableRow().getItem() == null || cell.getItem() == null) return false;
 
                         var time = (new HourColumnHeaderStrConv().fromString(column.getText())).atDate(datePicker.getValue());
-                        if (!rowCourt.isAvailable(time, Duration.ofHours(1))) {
+                        if (!availabilityMatrix.isAvailable(rowCourt, time)) {
                             cell.getStyleClass().add("unavailable-hour");
                             return true;
                         }
@@ -545,7 +611,7 @@ public class CourtReservationController {
 
                         Trainer trainer = SessionData.trainerProperty().getValue();
                         if (trainer != null) {
-                            if (trainer.isAvailable(time, Duration.ofHours(1))) {
+                            if (availabilityMatrix.isAvailable(trainer, time, Duration.ofHours(1))) {
                                 cell.getStyleClass().add("trainer-available");
                             } else {
                                 cell.getStyleClass().add("disabled-hour");
@@ -555,7 +621,7 @@ public class CourtReservationController {
 
                         Racket racket = SessionData.racketProperty().getValue();
                         if (racket != null) {
-                            if (racket.isAvailable(time, Duration.ofHours(1))) {
+                            if (availabilityMatrix.isAvailable(racket, time, Duration.ofHours(1))) {
                                 cell.getStyleClass().add("racket-available");
                             } else {
                                 cell.getStyleClass().add("disabled-hour");
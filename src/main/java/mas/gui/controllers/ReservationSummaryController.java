@@ -1,21 +1,27 @@
 package mas.gui.controllers;
 
-import jakarta.persistence.RollbackException;
 import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import mas.entity.*;
+import mas.service.BookingService;
+import mas.service.InvalidBookingException;
+import mas.service.PricingEngine;
 import mas.util.DBController;
+import mas.util.DBExecutor;
 import mas.util.ParticipantComboBoxStringConverter;
 import mas.util.SessionData;
+import mas.util.TimeUnavailableException;
 import mas.util.Util;
 
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.concurrent.CompletionException;
 
 public class ReservationSummaryController {
     @FXML
@@ -52,6 +58,8 @@ public class ReservationSummaryController {
     private Label racketPriceValueLabel;
     @FXML
     private Label totalPriceValueLabel;
+    @FXML
+    private Button confirmButton;
 
     public void initialize() {
         validateData();
@@ -97,11 +105,9 @@ public class ReservationSummaryController {
 
     private void heatingSurchargeDetailsSetup() {
         heatingSurchargeValueLabel.textProperty().bind(SessionData.courtProperty().map(court -> {
-            String zero = NumberFormat.getCurrencyInstance().format(BigDecimal.ZERO);
             if (SessionData.reservationStartProperty().get() == null) return "Start not set!";
-            if (court instanceof CourtRoofed)
-                return NumberFormat.getCurrencyInstance().format(CourtRoofed.getHeatingSurcharge(SessionData.reservationStartProperty().get().toLocalDate()));
-            return zero;
+            return NumberFormat.getCurrencyInstance().format(PricingEngine.toAmount(PricingEngine.INSTANCE
+                    .heatingSurcharge(court, SessionData.reservationStartProperty().get().toLocalDate())));
         }).orElse(NumberFormat.getCurrencyInstance().format(BigDecimal.ZERO)));
 
         heatingSurchargeValueLabel.disableProperty().bind(Bindings.createBooleanBinding(() -> {
@@ -125,22 +131,14 @@ public class ReservationSummaryController {
 
         courtNrValueLabel.textProperty().bind(SessionData.courtProperty().map(v -> v.getNumber().toString()));
 
-        courtPricePerHourValueLabel.textProperty().bind(SessionData.courtProperty().map(court -> {
-            if (court instanceof CourtRoofed) return NumberFormat.getCurrencyInstance().format(CourtRoofed.getPricePerHour());
-            if (court instanceof CourtUnroofed) return NumberFormat.getCurrencyInstance().format(CourtUnroofed.getPricePerHour());
-            throw new RuntimeException("Unknown court type");
-        }));
+        courtPricePerHourValueLabel.textProperty().bind(SessionData.courtProperty().map(court ->
+                NumberFormat.getCurrencyInstance().format(PricingEngine.toAmount(PricingEngine.INSTANCE.courtPricePerHour(court)))));
         courtPricePerHourLabel.setText("Kort (" + NumberFormat.getCurrencyInstance().getCurrency().getSymbol() + "/h):");
 
         reservationPriceValueLabel.textProperty().bind(SessionData.reservationDurationProperty().map(duration -> {
             var court = SessionData.courtProperty().getValue();
             if (court == null) return "Court not set!";
-            var hours = duration.toHours();
-            BigDecimal pricePerHour;
-            if (court instanceof CourtRoofed) pricePerHour = CourtRoofed.getPricePerHour();
-            else if (court instanceof CourtUnroofed) pricePerHour = CourtUnroofed.getPricePerHour();
-            else throw new IllegalStateException("Unknown court type");
-            return NumberFormat.getCurrencyInstance().format(pricePerHour.multiply(BigDecimal.valueOf(hours)));
+            return NumberFormat.getCurrencyInstance().format(PricingEngine.toAmount(SessionData.getQuote().courtPrice()));
         }));
     }
 
@@ -166,60 +164,54 @@ public class ReservationSummaryController {
 
     /**
      * Confirms the reservation by saving it to the database and displaying a confirmation message.
-     * If an error occurs, an error message is shown instead.
+     * If an error occurs, an error message describing it is shown instead.
+     * The reservation is saved off the JavaFX application thread, the button is disabled in the meantime.
      */
     @FXML
     public void confirmReservation() {
-        try {
-            var participant = SessionData.participantProperty().getValue() == null ?
-                    SessionData.clientProperty().getValue() :
-                    SessionData.participantProperty().getValue();
-
-            DBController.INSTANCE.getEm().getTransaction().begin();
-            if (SessionData.trainerProperty().getValue() != null) {
-                var training = Training.makeReservation(
-                        SessionData.clientProperty().getValue(),
-                        participant,
-                        SessionData.trainerProperty().getValue(),
-                        SessionData.courtProperty().getValue(),
-                        SessionData.reservationStartProperty().getValue(),
-                        SessionData.reservationDurationProperty().getValue()
-                );
-
-                if (SessionData.racketProperty().getValue() != null)
-                    training.addEquipment(SessionData.racketProperty().getValue());
-
-                DBController.INSTANCE.getEm().persist(training);
+        var order = SessionData.getOrder();
+
+        confirmButton.setDisable(true);
+        DBExecutor.INSTANCE.submit(() -> {
+            try {
+                return BookingService.INSTANCE.book(order);
+            } finally {
+                // the booking is made in a unit of work of its own, the shared entities may be stale now
+                DBController.INSTANCE.getEm().clear();
+            }
+        }).whenCompleteAsync((result, error) -> {
+            if (error == null) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Potwierdzenie rezerwacji");
+                alert.setHeaderText("Rezerwacja została potwierdzona");
+                alert.setContentText("Rezerwacja została pomyślnie zarejestrowana w systemie.");
+                alert.showAndWait();
             } else {
-                var reservation = Reservation.makeReservation(
-                        SessionData.reservationStartProperty().getValue(),
-                        SessionData.reservationDurationProperty().getValue(),
-                        SessionData.courtProperty().getValue(),
-                        SessionData.racketProperty().getValue(),
-                        SessionData.clientProperty().getValue(),
-                        participant,
-                        SessionData.commentProperty().getValue()
-                );
-                DBController.INSTANCE.getEm().persist(reservation);
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Błąd");
+                alert.setHeaderText("Wystąpił błąd podczas rezerwacji");
+                alert.setContentText(describeError(error));
+                alert.showAndWait();
             }
 
-            DBController.INSTANCE.getEm().getTransaction().commit();
-
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Potwierdzenie rezerwacji");
-            alert.setHeaderText("Rezerwacja została potwierdzona");
-            alert.setContentText("Rezerwacja została pomyślnie zarejestrowana w systemie.");
-            alert.showAndWait();
-        } catch (RollbackException | IllegalStateException e) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Błąd");
-            alert.setHeaderText("Wystąpił błąd podczas rezerwacji");
-            alert.setContentText("Wystąpił błąd podczas rezerwacji. Spróbuj ponownie.");
-            alert.showAndWait();
-        }
-
-        SessionData.cancel();
-        Util.changeScene("start.fxml");
+            SessionData.cancel();
+            Util.changeScene("start.fxml");
+        }, DBExecutor.FX);
+    }
+
+    /**
+     * Describes the given failure of a booking for the user: the problems of an invalid booking,
+     * the resource which is unavailable, or a plea to try again.
+     */
+    private static String describeError(Throwable error) {
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof InvalidBookingException invalid)
+            return "Rezerwacja jest niepoprawna:\n- " + String.join("\n- ", invalid.getProblems());
+        if (cause instanceof TimeUnavailableException)
+            return "Wybrany termin jest już zajęty.\n" + cause.getMessage();
+        if (BookingService.isConflict(cause))
+            return "Termin został w międzyczasie zarezerwowany przez kogoś innego. Spróbuj ponownie.";
+        return "Wystąpił błąd podczas rezerwacji. Spróbuj ponownie.";
     }
 
     /**
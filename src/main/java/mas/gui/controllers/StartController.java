@@ -1,12 +1,14 @@
 package mas.gui.controllers;
 
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.util.StringConverter;
 import mas.entity.Person;
 import mas.util.DBController;
+import mas.util.DBExecutor;
 import mas.util.SessionData;
 import mas.util.Util;
 
@@ -34,14 +36,7 @@ public class StartController {
     @FXML
     public void initialize() {
         // Populate the client choice box with Person entities filtered by PersonType.CLIENT
-        clientChoiceBox.getItems().setAll(DBController.INSTANCE.getEm()
-                .createQuery("from Person", Person.class)
-                .getResultStream()
-                .filter(p -> p.getPersonTypes().contains(Person.PersonType.CLIENT))
-                .toList());
-
-        // Select the first item in the client choice box
-        clientChoiceBox.getSelectionModel().selectFirst();
+        loadClients();
 
         // Set a converter to display client information in the choice box
         clientChoiceBox.setConverter(new StringConverter<>() {
@@ -70,25 +65,55 @@ public class StartController {
      */
     @FXML
     public void seedDbClick() {
-        try {
+        seedDBButton.setDisable(true);
+        messageLabel.setText("Seeding...");
+        DBExecutor.INSTANCE.submit(() -> {
             DBController.INSTANCE.seedDb();
+            return null;
+        }).whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                messageLabel.setText("Seeding failed. Database might already contain data.");
+                return;
+            }
+            messageLabel.setText("Seed method initialized.");
 
             // Update the client choice box with the latest data
-            clientChoiceBox.getItems().setAll(DBController.INSTANCE.getEm()
+            loadClients();
+        }, DBExecutor.FX);
+    }
+
+    /**
+     * Loads the clients off the JavaFX application thread and shows them in the client choice box,
+     * selecting the first one. The owned participants shown by the converter are loaded along with them.
+     * If the clients can not be loaded, a database error is shown instead.
+     */
+    private void loadClients() {
+        DBExecutor.INSTANCE.submit(() -> {
+            var clients = DBController.INSTANCE.getEm()
                     .createQuery("from Person", Person.class)
                     .getResultStream()
                     .filter(p -> p.getPersonTypes().contains(Person.PersonType.CLIENT))
-                    .toList());
+                    .toList();
+            clients.forEach(client -> client.getOwnedParticipants().size());
+            return clients;
+        }).whenCompleteAsync((clients, error) -> {
+            if (error != null) {
+                showDatabaseError();
+                return;
+            }
+            clientChoiceBox.getItems().setAll(clients);
 
             // Select the first item in the client choice box
             clientChoiceBox.getSelectionModel().selectFirst();
-        } catch (Exception e) {
-            seedDBButton.setDisable(true);
-            messageLabel.setText("Seeding failed. Database might already contain data.");
-            return;
-        }
-        seedDBButton.setDisable(true);
-        messageLabel.setText("Seed method initialized.");
+        }, DBExecutor.FX);
+    }
+
+    private static void showDatabaseError() {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Błąd");
+        alert.setHeaderText("Błąd połączenia z bazą danych");
+        alert.setContentText("Nie udało się wczytać klientów. Spróbuj ponownie.");
+        alert.showAndWait();
     }
 
     /**
@@ -0,0 +1,413 @@
+package mas.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.Persistence;
+import mas.entity.*;
+import mas.service.BookingOrder;
+import mas.service.BookingRequest;
+import mas.service.BookingService;
+import mas.service.InvalidBookingException;
+import mas.service.PricingEngine;
+import mas.service.Quote;
+import mas.service.SlotFinder;
+import mas.util.AvailabilityMatrix;
+import mas.util.DBController;
+import mas.util.JsonReader;
+import mas.util.JsonWriter;
+import mas.util.TimeUnavailableException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Embedded HTTP server exposing the booking use case as a JSON API, so kiosks and mobile front-ends
+ * can book next to (or instead of) the desktop {@link mas.CourtReservationApp}.
+ * <p>
+ * Every request is served on a thread of a fixed pool and does its database work in units of work of its own,
+ * so requests never share an entity manager and each one holds a pooled connection only while it needs it.
+ * <ul>
+ *     <li>{@code GET /availability?date=2024-05-01[&court=1]} or {@code ?from=...&to=...} - free hours of the courts
+ *     per day, streamed day by day</li>
+ *     <li>{@code GET /slots?from=2024-05-01&to=2024-05-07&minutes=60[&trainer=1][&racket=Yonex][&sort=start][&limit=5]}
+ *     - the best free slots, the cheapest first unless sorted by start</li>
+ *     <li>{@code POST /quote} - price of a booking</li>
+ *     <li>{@code POST /bookings} - books a reservation, or a training if a trainer is given</li>
+ *     <li>{@code DELETE /reservations/{id}}, {@code DELETE /trainings/{id}} - cancels a booking</li>
+ * </ul>
+ * Bookings are described by a JSON object with the members {@code client}, {@code participant}, {@code court},
+ * {@code racket} and {@code trainer} (identifiers), {@code start} (ISO local date-time), {@code minutes}
+ * and {@code comment}.
+ */
+public class BookingServer {
+
+    /**
+     * The longest range of days served by a single availability request.
+     */
+    static final int MAX_AVAILABILITY_DAYS = 92;
+
+    /**
+     * The most options returned by a single slot search.
+     */
+    static final int MAX_SLOTS = 50;
+
+    private static final int DEFAULT_SLOTS = 10;
+
+    private static final int DEFAULT_PORT = 8080;
+
+    private static final int DEFAULT_THREADS = 16;
+
+    private static final System.Logger LOGGER = System.getLogger(BookingServer.class.getName());
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server listening on the given port, serving requests on the given number of threads.
+     * {@link DBController} has to be set up with an entity manager factory before the server is started.
+     *
+     * @param port    the port to listen on, 0 for any free port
+     * @param threads the number of threads serving requests
+     * @throws IOException if the server socket can not be opened
+     */
+    public BookingServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/availability", exchange -> handle(exchange, "GET", this::availability));
+        server.createContext("/slots", exchange -> handle(exchange, "GET", this::slots));
+        server.createContext("/quote", exchange -> handle(exchange, "POST", this::quote));
+        server.createContext("/bookings", exchange -> handle(exchange, "POST", this::book));
+        server.createContext("/reservations/", exchange -> handle(exchange, "DELETE", e -> cancel(e, Reservation.class)));
+        server.createContext("/trainings/", exchange -> handle(exchange, "DELETE", e -> cancel(e, Training.class)));
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, giving the requests being served a second to complete.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Runs the server on the default persistence unit until the process is stopped.
+     *
+     * @param args the port and the number of threads, both optional
+     * @throws IOException if the server socket can not be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_THREADS;
+
+        EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("default");
+        DBController.INSTANCE.setEntityManagerFactory(entityManagerFactory);
+        DBController.INSTANCE.migrate();
+
+        var bookingServer = new BookingServer(port, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            bookingServer.stop();
+            entityManagerFactory.close();
+        }));
+        bookingServer.start();
+        System.out.println("Booking server listening on port " + bookingServer.getPort());
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Serves the given exchange with the given handler, mapping the failures to HTTP error responses.
+     * Unexpected failures are logged. A failure after the response headers have been sent can not be answered
+     * with an error any more, so it is logged and rethrown, which makes the HTTP server drop the connection
+     * instead of ending the body as if it was complete.
+     */
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                sendError(exchange, 405, "method not allowed");
+            } else {
+                handler.handle(exchange);
+            }
+        } catch (RuntimeException | IOException e) {
+            if (exchange.getResponseCode() != -1) {
+                LOGGER.log(System.Logger.Level.ERROR, "%s %s failed after the response was started, aborting it"
+                        .formatted(exchange.getRequestMethod(), exchange.getRequestURI()), e);
+                throw e;
+            }
+            sendError(exchange, e);
+        }
+        exchange.close();
+    }
+
+    /**
+     * Answers the given exchange with the error response of the given failure.
+     */
+    private static void sendError(HttpExchange exchange, Exception e) throws IOException {
+        if (e instanceof InvalidBookingException invalid) {
+            sendError(exchange, 400, String.join("; ", invalid.getProblems()));
+        } else if (e instanceof NoSuchElementException) {
+            sendError(exchange, 404, e.getMessage());
+        } else if (e instanceof IllegalArgumentException || e instanceof DateTimeParseException) {
+            sendError(exchange, 400, e.getMessage());
+        } else if (e instanceof TimeUnavailableException || e instanceof OptimisticLockException) {
+            sendError(exchange, 409, e.getMessage());
+        } else {
+            LOGGER.log(System.Logger.Level.ERROR, "%s %s failed"
+                    .formatted(exchange.getRequestMethod(), exchange.getRequestURI()), e);
+            sendError(exchange, 500, "internal error");
+        }
+    }
+
+    private void availability(HttpExchange exchange) throws IOException {
+        var query = queryParameters(exchange);
+        LocalDate from;
+        LocalDate to;
+        if (query.containsKey("date")) {
+            from = LocalDate.parse(query.get("date"));
+            to = from;
+        } else {
+            from = LocalDate.parse(required(query, "from"));
+            to = LocalDate.parse(required(query, "to"));
+        }
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_DAYS)
+            throw new IllegalArgumentException("the range has to span 1 to " + MAX_AVAILABILITY_DAYS + " days");
+        Integer courtNumber = query.containsKey("court") ? Integer.valueOf(query.get("court")) : null;
+
+        // the first day is computed before the headers are sent, so its failure is still answered with an error
+        var matrix = availabilityOf(from);
+        // not closed on failure, so a later day failing aborts the response instead of ending it as if complete
+        var json = startJson(exchange, 200);
+        json.beginArray();
+        for (var date = from; ; date = date.plusDays(1)) {
+            writeDay(json, matrix, courtNumber);
+            // the days are sent as they are computed
+            json.flush();
+            if (!date.isBefore(to)) break;
+            matrix = availabilityOf(date.plusDays(1));
+        }
+        json.endArray();
+        json.close();
+    }
+
+    private static AvailabilityMatrix availabilityOf(LocalDate date) {
+        return DBController.INSTANCE.readOnly(em -> DBController.INSTANCE.getAvailabilityMatrix(date));
+    }
+
+    private static void writeDay(JsonWriter json, AvailabilityMatrix matrix, Integer courtNumber) throws IOException {
+        json.beginObject().member("date", matrix.getDate()).name("courts").beginArray();
+        for (Court court : matrix.getCourts()) {
+            if (courtNumber != null && !courtNumber.equals(court.getNumber())) continue;
+            json.beginObject()
+                    .member("id", court.getId())
+                    .member("number", court.getNumber())
+                    .member("surface", court.getSurfaceType())
+                    .name("freeHours").beginArray();
+            for (int h = 0; h < matrix.getHours(); h++) {
+                var time = matrix.getDate().atTime(matrix.getOpeningHour()).plusHours(h);
+                if (matrix.isAvailable(court, time)) json.value(time.toLocalTime());
+            }
+            json.endArray().endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    private void slots(HttpExchange exchange) throws IOException {
+        var query = queryParameters(exchange);
+        var from = LocalDate.parse(required(query, "from"));
+        var to = LocalDate.parse(required(query, "to"));
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_DAYS)
+            throw new IllegalArgumentException("the range has to span 1 to " + MAX_AVAILABILITY_DAYS + " days");
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_SLOTS;
+        if (limit < 1 || limit > MAX_SLOTS) throw new IllegalArgumentException("limit has to be 1 to " + MAX_SLOTS);
+        var ranking = switch (query.getOrDefault("sort", "price")) {
+            case "price" -> SlotFinder.Ranking.CHEAPEST;
+            case "start" -> SlotFinder.Ranking.EARLIEST;
+            default -> throw new IllegalArgumentException("sort has to be price or start");
+        };
+        // any racket, or only the rackets of the given manufacturer
+        var manufacturer = query.get("racket");
+        Predicate<Racket> racket = manufacturer == null ? null : manufacturer.equalsIgnoreCase("any") ? r -> true
+                : r -> manufacturer.equalsIgnoreCase(r.getManufacturer());
+
+        var trainer = query.containsKey("trainer") ? Long.valueOf(query.get("trainer")) : null;
+        var options = SlotFinder.INSTANCE.find(new SlotFinder.Query(from, to,
+                Duration.ofMinutes(Long.parseLong(required(query, "minutes"))), trainer, racket, ranking), limit);
+
+        try (var json = startJson(exchange, 200)) {
+            json.beginArray();
+            for (var option : options) {
+                json.beginObject()
+                        .member("court", option.court().getId())
+                        .member("courtNumber", option.court().getNumber())
+                        .member("start", option.start())
+                        .member("end", option.start().plus(option.duration()))
+                        .member("trainer", option.trainer() == null ? null : option.trainer().getId())
+                        .member("racket", option.racket() == null ? null : option.racket().getId())
+                        .name("quote");
+                writeQuote(json, option.quote());
+                json.endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    private void quote(HttpExchange exchange) throws IOException {
+        var body = readBody(exchange);
+        var quote = DBController.INSTANCE.readOnly(em -> PricingEngine.INSTANCE.quote(new BookingRequest(
+                find(em, Court.class, body, "court"),
+                LocalDateTime.parse(requiredString(body, "start")),
+                Duration.ofMinutes(requiredLong(body, "minutes")),
+                find(em, Racket.class, body, "racket"),
+                find(em, Trainer.class, body, "trainer"))));
+
+        try (var json = startJson(exchange, 200)) {
+            writeQuote(json, quote);
+        }
+    }
+
+    private void book(HttpExchange exchange) throws IOException {
+        var body = readBody(exchange);
+        var order = DBController.INSTANCE.readOnly(em -> new BookingOrder(
+                find(em, Person.class, body, "client"),
+                find(em, Person.class, body, "participant"),
+                find(em, Court.class, body, "court"),
+                LocalDateTime.parse(requiredString(body, "start")),
+                Duration.ofMinutes(requiredLong(body, "minutes")),
+                find(em, Racket.class, body, "racket"),
+                find(em, Trainer.class, body, "trainer"),
+                (String) body.get("comment")));
+        var confirmation = BookingService.INSTANCE.book(order);
+
+        var booking = confirmation.booking();
+        var type = booking instanceof Training ? "training" : "reservation";
+        Long id = booking instanceof Training training ? training.getId() : ((Reservation) booking).getId();
+        exchange.getResponseHeaders().set("Location", "/" + type + "s/" + id);
+        try (var json = startJson(exchange, 201)) {
+            json.beginObject()
+                    .member("type", type)
+                    .member("id", id)
+                    .member("start", booking.getStart())
+                    .member("end", booking.getEnd())
+                    .name("quote");
+            writeQuote(json, confirmation.quote());
+            json.endObject();
+        }
+    }
+
+    private void cancel(HttpExchange exchange, Class<? extends Booking> type) throws IOException {
+        var path = exchange.getRequestURI().getPath();
+        var id = Long.valueOf(path.substring(path.lastIndexOf('/') + 1));
+        if (!BookingService.INSTANCE.cancel(type, id))
+            throw new NoSuchElementException(type.getSimpleName() + " " + id + " does not exist");
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private static void writeQuote(JsonWriter json, Quote quote) throws IOException {
+        json.beginObject()
+                .member("court", PricingEngine.toAmount(quote.courtPrice()))
+                .member("heatingSurcharge", PricingEngine.toAmount(quote.heatingSurcharge()))
+                .member("racket", PricingEngine.toAmount(quote.racketPrice()))
+                .member("trainer", PricingEngine.toAmount(quote.trainerPrice()))
+                .member("total", quote.totalAmount())
+                .endObject();
+    }
+
+    /**
+     * Finds the entity referenced by the given member of the body, null if the member is missing or null.
+     */
+    private static <T> T find(EntityManager em, Class<T> type, Map<String, Object> body, String member) {
+        if (body.get(member) == null) return null;
+        T entity = em.find(type, requiredLong(body, member));
+        if (entity == null) throw new NoSuchElementException(member + " " + body.get(member) + " does not exist");
+        return entity;
+    }
+
+    private static String requiredString(Map<String, Object> body, String member) {
+        if (!(body.get(member) instanceof String value)) throw new IllegalArgumentException(member + " is required");
+        return value;
+    }
+
+    private static long requiredLong(Map<String, Object> body, String member) {
+        if (!(body.get(member) instanceof Long value)) throw new IllegalArgumentException(member + " has to be an integer");
+        return value;
+    }
+
+    private static String required(Map<String, String> query, String parameter) {
+        var value = query.get(parameter);
+        if (value == null) throw new IllegalArgumentException(parameter + " is required");
+        return value;
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        var query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (var in = exchange.getRequestBody()) {
+            return JsonReader.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Sends the response headers for a streamed JSON body and returns the writer of the body.
+     */
+    private static JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (var json = startJson(exchange, status)) {
+            json.beginObject().member("error", message).endObject();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package mas.service;
+
+import mas.entity.Booking;
+
+/**
+ * Result of a booking made by the {@link BookingService}.
+ *
+ * @param booking the persisted reservation or training, detached
+ * @param quote   the price of the booking
+ */
+public record BookingConfirmation(Booking booking, Quote quote) {
+}
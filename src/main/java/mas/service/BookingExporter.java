@@ -0,0 +1,358 @@
+package mas.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import mas.entity.*;
+import mas.util.DBController;
+import mas.util.JsonWriter;
+import org.hibernate.ScrollMode;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming exporter of reservations and trainings with their prices, e.g. the monthly dumps for accounting.
+ * Every booking starting within the exported period is written as a CSV row or an NDJSON line with the columns
+ * {@code type}, {@code id}, {@code start}, {@code end}, {@code minutes}, {@code court} (number), {@code client},
+ * {@code participant}, {@code racket} and {@code trainer} (identifiers, several separated by {@code ;}),
+ * {@code paid}, the price components {@code courtPrice}, {@code heatingSurcharge}, {@code racketPrice},
+ * {@code trainerPrice}, their {@code total} and {@code comment}. The reservations come first, then the trainings,
+ * both ordered by their start time, then the occurrences of the cyclical trainings.
+ * <p>
+ * A cyclical training is exported as a row of type {@code cyclicalTraining} per occurrence starting within the period,
+ * with the identifier of the series, the start and end of the occurrence and the price of the occurrence,
+ * so the revenue of a month holds the occurrences of the month only. Every occurrence is counted as a training.
+ * <p>
+ * The bookings are read with a forward-only cursor in a read-only unit of work and processed in batches of
+ * {@value #BATCH_SIZE}: the related entities of a batch are loaded by a query per relationship, its prices are
+ * calculated at once by the {@link PricingEngine}, the rows are written to the channel and the persistence context
+ * is cleared, so the memory used does not depend on the number of bookings exported.
+ */
+public class BookingExporter {
+
+    /**
+     * Counts and revenue of the exported bookings.
+     *
+     * @param reservations the number of reservations exported
+     * @param trainings    the number of trainings exported
+     * @param revenue      the sum of the total prices of the exported bookings
+     */
+    public record Summary(long reservations, long trainings, BigDecimal revenue) {
+    }
+
+    /**
+     * An exported booking with its related entities.
+     */
+    private record Row(String type, Long id, LocalDateTime start, Duration duration, LocalDateTime end, Boolean paid,
+                       String comment, Court court, Racket racket, Trainer trainer, String clients, String participants) {
+
+        BookingRequest toRequest() {
+            return new BookingRequest(court, start, duration, racket, trainer);
+        }
+    }
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final List<String> COLUMNS = List.of("type", "id", "start", "end", "minutes", "court", "client",
+            "participant", "racket", "trainer", "paid", "courtPrice", "heatingSurcharge", "racketPrice", "trainerPrice",
+            "total", "comment");
+
+    private final BookingFileFormat format;
+
+    private long reservationCount;
+
+    private long trainingCount;
+
+    private long revenue;
+
+    /**
+     * Constructs a BookingExporter writing files of the given format.
+     *
+     * @param format the format of the exported files
+     */
+    public BookingExporter(BookingFileFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Exports the bookings starting in the given month to the given file, replacing it if it exists.
+     *
+     * @param month the month of the bookings
+     * @param file  the file to write to
+     * @return the counts and revenue of the exported bookings
+     * @throws IOException if the file can not be written
+     */
+    public Summary export(YearMonth month, Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(), channel);
+        }
+    }
+
+    /**
+     * Exports the bookings starting in the given period to the given channel using the entity manager factory
+     * of {@link DBController}. The channel is not closed.
+     *
+     * @param from    the start of the period, inclusive
+     * @param to      the end of the period, exclusive
+     * @param channel the channel to write to
+     * @return the counts and revenue of the exported bookings
+     * @throws IOException if the channel can not be written
+     */
+    public Summary export(LocalDateTime from, LocalDateTime to, WritableByteChannel channel) throws IOException {
+        reservationCount = 0;
+        trainingCount = 0;
+        revenue = 0;
+        if (format == BookingFileFormat.CSV) write(channel, new StringBuilder(String.join(",", COLUMNS)).append('\n'));
+        try {
+            DBController.INSTANCE.readOnly(em -> {
+                exportReservations(em, from, to, channel);
+                exportTrainings(em, from, to, channel);
+                exportSeries(em, from, to, channel);
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new Summary(reservationCount, trainingCount, PricingEngine.toAmount(revenue));
+    }
+
+    private void exportReservations(EntityManager em, LocalDateTime from, LocalDateTime to, WritableByteChannel channel) {
+        var query = em.unwrap(Session.class).createQuery("""
+                        SELECT r.id, r.start, r.duration, r.end, r.isPaid, r.comment, c, rk, r.client.id, r.participant.id
+                        FROM Reservation r JOIN r.court c LEFT JOIN r.racket rk
+                        WHERE r.start >= :from AND r.start < :to ORDER BY r.start, r.id""", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFetchSize(BATCH_SIZE)
+                .setReadOnly(true);
+
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+        try (var results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                Object[] r = results.get();
+                batch.add(new Row("reservation", (Long) r[0], (LocalDateTime) r[1], (Duration) r[2], (LocalDateTime) r[3],
+                        (Boolean) r[4], (String) r[5], (Court) r[6], (Racket) r[7], null,
+                        String.valueOf(r[8]), String.valueOf(r[9])));
+                if (batch.size() == BATCH_SIZE) {
+                    writeBatch(em, batch, channel);
+                    reservationCount += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        writeBatch(em, batch, channel);
+        reservationCount += batch.size();
+    }
+
+    private void exportTrainings(EntityManager em, LocalDateTime from, LocalDateTime to, WritableByteChannel channel) {
+        var query = em.unwrap(Session.class).createQuery("""
+                        SELECT t.id, t.start, t.duration, t.end, t.isPaid, c, tr
+                        FROM Training t JOIN t.court c JOIN t.trainer tr
+                        WHERE TYPE(t) = Training AND t.start >= :from AND t.start < :to ORDER BY t.start, t.id""", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFetchSize(BATCH_SIZE)
+                .setReadOnly(true);
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        try (var results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                batch.add(results.get());
+                if (batch.size() == BATCH_SIZE) {
+                    writeBatch(em, trainingRows(em, "training", batch), channel);
+                    trainingCount += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        writeBatch(em, trainingRows(em, "training", batch), channel);
+        trainingCount += batch.size();
+    }
+
+    /**
+     * Exports the occurrences starting within the period of the cyclical trainings spanning over it,
+     * generated from their rules.
+     */
+    private void exportSeries(EntityManager em, LocalDateTime from, LocalDateTime to, WritableByteChannel channel) {
+        var query = em.unwrap(Session.class).createQuery("""
+                        SELECT s, c, tr
+                        FROM CyclicalTraining s JOIN s.court c JOIN s.trainer tr
+                        WHERE s.end > :from AND s.start < :to ORDER BY s.start, s.id""", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFetchSize(BATCH_SIZE)
+                .setReadOnly(true);
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        try (var results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                Object[] r = results.get();
+                var series = (CyclicalTraining) r[0];
+                // generated before the batch is written, which detaches the series
+                var occurrences = series.occurrences(from, to).filter(o -> !o.start().isBefore(from)).toList();
+                for (var occurrence : occurrences) {
+                    batch.add(new Object[]{series.getId(), occurrence.start(), occurrence.duration(), occurrence.end(),
+                            series.getIsPaid(), r[1], r[2]});
+                    if (batch.size() == BATCH_SIZE) {
+                        writeBatch(em, trainingRows(em, "cyclicalTraining", batch), channel);
+                        trainingCount += batch.size();
+                        batch.clear();
+                    }
+                }
+            }
+        }
+        writeBatch(em, trainingRows(em, "cyclicalTraining", batch), channel);
+        trainingCount += batch.size();
+    }
+
+    /**
+     * Completes the given trainings with their rackets, clients and participants, loaded by a query each.
+     */
+    private static List<Row> trainingRows(EntityManager em, String type, List<Object[]> trainings) {
+        if (trainings.isEmpty()) return List.of();
+        var ids = trainings.stream().map(t -> (Long) t[0]).distinct().toList();
+
+        Map<Long, Racket> rackets = new HashMap<>();
+        em.createQuery("""
+                        SELECT t.id, e FROM Training t JOIN t.equipmentSet e
+                        WHERE t.id IN :ids AND TYPE(e) = Racket ORDER BY e.id""", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(r -> rackets.putIfAbsent((Long) r[0], (Racket) r[1]));
+        var clients = personIds(em, "clients", ids);
+        var participants = personIds(em, "participants", ids);
+
+        List<Row> rows = new ArrayList<>(trainings.size());
+        for (Object[] t : trainings) {
+            Long id = (Long) t[0];
+            rows.add(new Row(type, id, (LocalDateTime) t[1], (Duration) t[2], (LocalDateTime) t[3], (Boolean) t[4],
+                    null, (Court) t[5], rackets.get(id), (Trainer) t[6],
+                    clients.getOrDefault(id, ""), participants.getOrDefault(id, "")));
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the identifiers of the people of the given collection of the given trainings, separated by {@code ;}.
+     */
+    private static Map<Long, String> personIds(EntityManager em, String collection, List<Long> trainingIds) {
+        return em.createQuery("SELECT t.id, p.id FROM Training t JOIN t." + collection + " p WHERE t.id IN :ids ORDER BY p.id",
+                        Object[].class)
+                .setParameter("ids", trainingIds)
+                .getResultStream()
+                .collect(Collectors.groupingBy(r -> (Long) r[0], LinkedHashMap::new,
+                        Collectors.mapping(r -> String.valueOf(r[1]), Collectors.joining(";"))));
+    }
+
+    /**
+     * Prices and writes the given rows, then clears the persistence context.
+     */
+    private void writeBatch(EntityManager em, List<Row> rows, WritableByteChannel channel) {
+        if (rows.isEmpty()) return;
+        var quotes = PricingEngine.INSTANCE.quote(rows.stream().map(Row::toRequest).toList());
+
+        var out = new StringBuilder(rows.size() * 128);
+        for (int i = 0; i < rows.size(); i++) {
+            var quote = quotes.get(i);
+            revenue += quote.total();
+            appendRow(out, rows.get(i), quote);
+        }
+        write(channel, out);
+        em.clear();
+    }
+
+    private void appendRow(StringBuilder out, Row row, Quote quote) {
+        // bookings saved before their end times were stored may lack them
+        var end = row.end() != null ? row.end() : row.start().plus(row.duration());
+        List<Object> values = Arrays.asList(row.type(), row.id(), row.start(), end, row.duration().toMinutes(),
+                row.court().getNumber(), row.clients(), row.participants(),
+                row.racket() == null ? null : row.racket().getId(), row.trainer() == null ? null : row.trainer().getId(),
+                row.paid(), PricingEngine.toAmount(quote.courtPrice()), PricingEngine.toAmount(quote.heatingSurcharge()),
+                PricingEngine.toAmount(quote.racketPrice()), PricingEngine.toAmount(quote.trainerPrice()),
+                quote.totalAmount(), row.comment());
+
+        if (format == BookingFileFormat.CSV) {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) out.append(',');
+                appendCsvField(out, values.get(i));
+            }
+        } else {
+            var json = new StringWriter(256);
+            try (var writer = new JsonWriter(json)) {
+                writer.beginObject();
+                for (int i = 0; i < values.size(); i++) {
+                    writer.member(COLUMNS.get(i), values.get(i));
+                }
+                writer.endObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            out.append(json.getBuffer());
+        }
+        out.append('\n');
+    }
+
+    private static void appendCsvField(StringBuilder out, Object value) {
+        if (value == null) return;
+        var text = value instanceof BigDecimal amount ? amount.toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            out.append(text);
+            return;
+        }
+        out.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void write(WritableByteChannel channel, CharSequence text) {
+        var bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Exports the bookings of a month from the database of the default persistence unit,
+     * in the format matching the extension of the file.
+     * Usage: {@code BookingExporter <month, e.g. 2024-05> <file>}
+     *
+     * @param args the month and the file to write to
+     * @throws IOException if the file can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BookingExporter <month, e.g. 2024-05> <file>");
+            System.exit(1);
+        }
+        var month = YearMonth.parse(args[0]);
+        var file = Path.of(args[1]);
+
+        EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("default");
+        DBController.INSTANCE.setEntityManagerFactory(entityManagerFactory);
+        try {
+            long start = System.nanoTime();
+            var summary = new BookingExporter(BookingFileFormat.of(file)).export(month, file);
+            System.out.println(summary + " in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+}
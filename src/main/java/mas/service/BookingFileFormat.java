@@ -0,0 +1,29 @@
+package mas.service;
+
+import java.nio.file.Path;
+
+/**
+ * Format of the files bookings are imported from and exported to.
+ */
+public enum BookingFileFormat {
+    /**
+     * Comma separated values with a header row.
+     */
+    CSV,
+    /**
+     * Newline delimited JSON, a JSON object per line.
+     */
+    NDJSON;
+
+    /**
+     * Returns the format of the given file judging by its extension, CSV unless it is {@code .json}
+     * or {@code .ndjson}.
+     *
+     * @param file the file
+     * @return the format of the file
+     */
+    public static BookingFileFormat of(Path file) {
+        var name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".json") ? NDJSON : CSV;
+    }
+}
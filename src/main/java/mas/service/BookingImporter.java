@@ -0,0 +1,476 @@
+package mas.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import mas.entity.*;
+import mas.util.DBController;
+import mas.util.IntervalIndex;
+import mas.util.JsonReader;
+import mas.util.TimeUnavailableException;
+import org.hibernate.TypeMismatchException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Streaming importer of reservations and trainings, e.g. migrated from another system or received as league schedules.
+ * The bookings are read from CSV files with a header row, or from NDJSON files holding a JSON object per line,
+ * with the columns (members) {@code client}, {@code participant}, {@code court}, {@code racket} and {@code trainer}
+ * (identifiers), {@code start} (ISO local date-time), {@code minutes} and {@code comment}. A booking with a trainer
+ * is imported as a training, as a reservation otherwise.
+ * <p>
+ * Every row is checked like a booking made by {@link BookingService}, except that bookings may start in the past,
+ * including the availability of the court, racket and trainer against the existing and the already imported
+ * bookings. Rows failing the checks are reported to the rejection consumer and skipped, the rest is imported.
+ * <p>
+ * The file is read line by line and imported in units of work of {@value #ROWS_PER_UNIT_OF_WORK} rows,
+ * so the memory used does not depend on the size of the file. A unit of work loads the referenced entities
+ * with a query per type and the bookings of every referenced court, racket and trainer with a range query
+ * over the period of its rows, checks the rows against them and the rows accepted before in memory,
+ * and persists the accepted rows in JDBC batches, clearing the persistence context after every batch,
+ * so the booking histories of the courts, rackets, trainers and clients are never loaded.
+ * It holds the {@link SlotLockManager} locks of the slots of its rows, so bookings made meanwhile by this process
+ * wait for it, and it is retried on conflicts with bookings made by other processes.
+ * A unit of work failing in the database is imported again row by row, so only the failing rows are rejected.
+ */
+public class BookingImporter {
+
+    /**
+     * A rejected row.
+     *
+     * @param line   the number of the line of the row in the file, starting at 1
+     * @param reason the reason of the rejection
+     */
+    public record Rejection(long line, String reason) {
+    }
+
+    /**
+     * Counts of the imported and rejected rows.
+     *
+     * @param rows         the number of rows read
+     * @param reservations the number of reservations imported
+     * @param trainings    the number of trainings imported
+     * @param rejected     the number of rows rejected
+     */
+    public record Summary(long rows, long reservations, long trainings, long rejected) {
+    }
+
+    /**
+     * A parsed row, referencing the booked entities by their identifiers.
+     */
+    private record Row(long line, Long client, Long participant, Long court, LocalDateTime start, Duration duration,
+                       Long racket, Long trainer, String comment) {
+    }
+
+    /**
+     * An existing booking read by a range query, known by its period only.
+     */
+    private record Period(LocalDateTime start, Duration duration) implements Booking {
+
+        @Override
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        @Override
+        public Duration getDuration() {
+            return duration;
+        }
+
+        @Override
+        public Court getCourt() {
+            return null;
+        }
+    }
+
+    private static final int ROWS_PER_UNIT_OF_WORK = 200;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final List<String> COLUMNS =
+            List.of("client", "participant", "court", "start", "minutes", "racket", "trainer", "comment");
+
+    private final BookingFileFormat format;
+
+    private final Consumer<Rejection> rejections;
+
+    private long rowCount;
+
+    private long reservationCount;
+
+    private long trainingCount;
+
+    private long rejectedCount;
+
+    /**
+     * Constructs a BookingImporter of files of the given format.
+     *
+     * @param format     the format of the imported files
+     * @param rejections the consumer of the rejected rows, called in the order of the rows within a unit of work
+     */
+    public BookingImporter(BookingFileFormat format, Consumer<Rejection> rejections) {
+        this.format = format;
+        this.rejections = rejections;
+    }
+
+    /**
+     * Imports the bookings read from the given reader using the entity manager factory of {@link DBController}.
+     * The reader is read to the end, but not closed.
+     *
+     * @param in the reader of the file
+     * @return the counts of the imported and rejected rows
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the header of a CSV file names an unknown column
+     */
+    public Summary importBookings(Reader in) throws IOException {
+        var reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        List<String> header = null;
+        List<Row> rows = new ArrayList<>(ROWS_PER_UNIT_OF_WORK);
+        long line = 0;
+        try {
+            for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+                line++;
+                if (text.isBlank()) continue;
+                if (format == BookingFileFormat.CSV && header == null) {
+                    header = parseHeader(text);
+                    continue;
+                }
+
+                rowCount++;
+                try {
+                    rows.add(parseRow(line, format == BookingFileFormat.CSV ? csvValues(header, text) : jsonValues(text)));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    reject(line, e.getMessage());
+                }
+                if (rows.size() == ROWS_PER_UNIT_OF_WORK) {
+                    importUnit(rows);
+                    rows.clear();
+                }
+            }
+            if (!rows.isEmpty()) importUnit(rows);
+        } finally {
+            DBController.INSTANCE.invalidateAvailabilityCache();
+        }
+        return new Summary(rowCount, reservationCount, trainingCount, rejectedCount);
+    }
+
+    /**
+     * Imports the given rows in a unit of work of their own, holding the locks of the slots they book,
+     * so bookings made meanwhile by this process wait for the unit of work instead of racing it.
+     * The unit of work is retried on conflicts with bookings made by other processes.
+     * The rejections and counts are only recorded once the unit of work is committed.
+     */
+    private void importUnit(List<Row> rows) {
+        List<SlotLockManager.SlotKey> slots = new ArrayList<>();
+        rows.forEach(row -> slots.addAll(slotsOf(row)));
+        // loaded outside the unit of work, where the snapshot is cached, instead of by every row within it
+        DBController.INSTANCE.getStaticStorageSnapshot();
+        RuntimeException failure = SlotLockManager.INSTANCE.withLocks(slots, () -> {
+            for (int attempt = 1; ; attempt++) {
+                List<Rejection> rejected = new ArrayList<>();
+                long[] imported = new long[2];
+                try {
+                    DBController.INSTANCE.inTransaction(em -> importRows(em, rows, rejected, imported));
+                } catch (RuntimeException e) {
+                    if (BookingService.isConflict(e) && attempt < MAX_ATTEMPTS) continue;
+                    return e;
+                }
+                reservationCount += imported[0];
+                trainingCount += imported[1];
+                rejected.forEach(r -> reject(r.line(), r.reason()));
+                return null;
+            }
+        });
+        if (failure == null) return;
+        if (BookingService.isConflict(failure)) {
+            rows.forEach(row -> reject(row.line(), "conflicted with concurrent bookings: " + failure.getMessage()));
+        } else if (rows.size() > 1) {
+            rows.forEach(row -> importUnit(List.of(row)));
+        } else {
+            reject(rows.get(0).line(), "could not be saved: " + failure.getMessage());
+        }
+    }
+
+    /**
+     * Checks the given rows and persists the accepted ones in JDBC batches. The referenced entities are loaded
+     * with a query per type and the bookings of every referenced court, racket and trainer with a range query
+     * over the period of the rows, so the rows are checked against them, and the rows accepted before, in memory.
+     */
+    private static void importRows(EntityManager em, List<Row> rows, List<Rejection> rejected, long[] imported) {
+        var persons = load(em, "SELECT DISTINCT p FROM Person p LEFT JOIN FETCH p.personTypes WHERE p.id IN :ids",
+                Person.class, ids(rows, Row::client, Row::participant));
+        var courts = load(em, "SELECT c FROM Court c WHERE c.id IN :ids", Court.class, ids(rows, Row::court));
+        var rackets = load(em, "SELECT r FROM Racket r WHERE r.id IN :ids", Racket.class, ids(rows, Row::racket));
+        var trainers = load(em, "SELECT DISTINCT t FROM Trainer t LEFT JOIN FETCH t.workingHours WHERE t.id IN :ids",
+                Trainer.class, ids(rows, Row::trainer));
+
+        Map<Row, BookingOrder> orders = new LinkedHashMap<>();
+        for (Row row : rows) {
+            try {
+                var order = new BookingOrder(
+                        find(persons, row.client(), "client"),
+                        find(persons, row.participant(), "participant"),
+                        find(courts, row.court(), "court"),
+                        row.start(), row.duration(),
+                        find(rackets, row.racket(), "racket"),
+                        find(trainers, row.trainer(), "trainer"),
+                        row.comment());
+                var problems = BookingService.INSTANCE.validate(order, null);
+                if (problems.isEmpty()) {
+                    if (!order.client().getPersonTypes().contains(Person.PersonType.CLIENT))
+                        problems.add("client is not a registered client");
+                    if (!order.effectiveParticipant().getPersonTypes().contains(Person.PersonType.PARTICIPANT))
+                        problems.add("participant is not a registered participant");
+                }
+                if (!problems.isEmpty()) throw new InvalidBookingException(problems);
+                orders.put(row, order);
+            } catch (InvalidBookingException e) {
+                rejected.add(new Rejection(row.line(), String.join("; ", e.getProblems())));
+            } catch (IllegalArgumentException e) {
+                rejected.add(new Rejection(row.line(), e.getMessage()));
+            }
+        }
+        if (orders.isEmpty()) return;
+
+        // claimed before the bookings are read, so no booking of another process is missed by the checks
+        BookingService.claimAll(em, orders.values().stream()
+                .flatMap(order -> SlotLockManager.slotsOf(order.toRequest()).stream())
+                .toList());
+        var from = orders.values().stream().map(BookingOrder::start).min(Comparator.naturalOrder()).orElseThrow();
+        var to = orders.values().stream().map(order -> order.start().plus(order.duration()))
+                .max(Comparator.naturalOrder()).orElseThrow();
+        Map<Long, IntervalIndex<Booking>> courtBookings = new HashMap<>();
+        Map<Long, IntervalIndex<Booking>> racketBookings = new HashMap<>();
+        Map<Long, IntervalIndex<Booking>> trainerBookings = new HashMap<>();
+        for (var order : orders.values()) {
+            courtBookings.computeIfAbsent(order.court().getId(),
+                    id -> index(DBController.INSTANCE.getCourtBookings(order.court(), from, to)));
+            if (order.racket() != null) racketBookings.computeIfAbsent(order.racket().getId(),
+                    id -> index(DBController.INSTANCE.getRacketBookings(order.racket(), from, to)));
+            if (order.trainer() != null) trainerBookings.computeIfAbsent(order.trainer().getId(),
+                    id -> index(DBController.INSTANCE.getTrainerBookings(order.trainer(), from, to)));
+        }
+
+        List<Booking> bookings = new ArrayList<>();
+        orders.forEach((row, order) -> {
+            var start = order.start();
+            var duration = order.duration();
+            var court = courtBookings.get(order.court().getId());
+            var racket = order.racket() == null ? null : racketBookings.get(order.racket().getId());
+            var trainer = order.trainer() == null ? null : trainerBookings.get(order.trainer().getId());
+            try {
+                if (racket != null && !racket.isFree(start, duration))
+                    throw new TimeUnavailableException(order.racket(), start, duration);
+                if (trainer != null) {
+                    var window = order.trainer().getWorkingWindow(start.toLocalDate());
+                    if (window.isEmpty() || !window.get().contains(start, start.plus(duration)) || !trainer.isFree(start, duration))
+                        throw new TimeUnavailableException(order.trainer(), start, duration);
+                }
+                if (!order.court().isInSeason(start) || !court.isFree(start, duration))
+                    throw new TimeUnavailableException(order.court(), start, duration);
+
+                Booking booking = order.trainer() != null
+                        ? Training.makeImportedTraining(order.client(), order.effectiveParticipant(), order.trainer(),
+                                order.court(), start, duration,
+                                order.racket() == null ? new Equipment[0] : new Equipment[]{order.racket()})
+                        : Reservation.makeImportedReservation(start, duration, order.court(), order.racket(),
+                                order.client(), order.effectiveParticipant(), order.comment());
+                court.add(booking);
+                if (racket != null) racket.add(booking);
+                if (trainer != null) trainer.add(booking);
+                bookings.add(booking);
+                imported[booking instanceof Training ? 1 : 0]++;
+            } catch (TimeUnavailableException | TypeMismatchException e) {
+                rejected.add(new Rejection(row.line(), e.getMessage()));
+            }
+        });
+        DBController.INSTANCE.persistAll(em, bookings);
+        rejected.sort(Comparator.comparingLong(Rejection::line));
+    }
+
+    /**
+     * Returns the slots the given row books. A row longer than a day is rejected by the checks,
+     * so it does not lock every day it spans.
+     */
+    private static List<SlotLockManager.SlotKey> slotsOf(Row row) {
+        if (row.court() == null || row.duration().compareTo(Duration.ofDays(1)) > 0) return List.of();
+        return SlotLockManager.slotsOf(row.court(), row.racket(), row.trainer(), row.start(), row.duration());
+    }
+
+    @SafeVarargs
+    private static Set<Long> ids(List<Row> rows, Function<Row, Long>... columns) {
+        Set<Long> ids = new HashSet<>();
+        for (Row row : rows) {
+            for (var column : columns) {
+                var id = column.apply(row);
+                if (id != null) ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Loads the entities with the given identifiers with the given query, by their identifiers.
+     */
+    private static <T> Map<Long, T> load(EntityManager em, String query, Class<T> type, Set<Long> ids) {
+        if (ids.isEmpty()) return Map.of();
+        var util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Map<Long, T> entities = new HashMap<>();
+        for (T entity : em.createQuery(query, type).setParameter("ids", ids).getResultList()) {
+            entities.put((Long) util.getIdentifier(entity), entity);
+        }
+        return entities;
+    }
+
+    private static <T> T find(Map<Long, T> entities, Long id, String column) {
+        if (id == null) return null;
+        T entity = entities.get(id);
+        if (entity == null) throw new IllegalArgumentException(column + " " + id + " does not exist");
+        return entity;
+    }
+
+    /**
+     * Indexes the bookings read by a range query as rows of their start and duration.
+     */
+    private static IntervalIndex<Booking> index(List<Object[]> rows) {
+        IntervalIndex<Booking> index = new IntervalIndex<>();
+        for (Object[] row : rows) {
+            index.add(new Period((LocalDateTime) row[0], (Duration) row[1]));
+        }
+        return index;
+    }
+
+    private void reject(long line, String reason) {
+        rejectedCount++;
+        rejections.accept(new Rejection(line, reason));
+    }
+
+    private static Row parseRow(long line, Map<String, String> values) {
+        var minutes = values.get("minutes");
+        if (minutes == null) throw new IllegalArgumentException("minutes is required");
+        var start = values.get("start");
+        if (start == null) throw new IllegalArgumentException("start is required");
+        return new Row(line, id(values, "client"), id(values, "participant"), id(values, "court"),
+                LocalDateTime.parse(start), Duration.ofMinutes(Long.parseLong(minutes)),
+                id(values, "racket"), id(values, "trainer"), values.get("comment"));
+    }
+
+    private static Long id(Map<String, String> values, String column) {
+        var value = values.get(column);
+        if (value == null) return null;
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not an identifier: " + value);
+        }
+    }
+
+    private static List<String> parseHeader(String line) {
+        var header = parseCsvLine(line).stream().map(c -> c.trim().toLowerCase()).toList();
+        for (String column : header) {
+            if (!COLUMNS.contains(column)) throw new IllegalArgumentException("Unknown column: " + column);
+        }
+        return header;
+    }
+
+    private static Map<String, String> csvValues(List<String> header, String line) {
+        var fields = parseCsvLine(line);
+        if (fields.size() != header.size())
+            throw new IllegalArgumentException("expected " + header.size() + " fields, found " + fields.size());
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            // empty fields are missing values
+            if (!fields.get(i).isEmpty()) values.put(header.get(i), fields.get(i));
+        }
+        return values;
+    }
+
+    private static Map<String, String> jsonValues(String line) {
+        Map<String, String> values = new HashMap<>();
+        JsonReader.parseObject(line).forEach((name, value) -> {
+            if (value != null) values.put(name, value.toString());
+        });
+        return values;
+    }
+
+    /**
+     * Splits the given CSV line into its fields. Fields may be quoted with double quotes,
+     * doubled within a quoted field; line breaks within fields are not supported.
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        var field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') field.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i));
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Imports a file into the database of the default persistence unit, writing the rejected rows as CSV
+     * to the given rejection report, or to the standard output.
+     * Usage: {@code BookingImporter <file> [rejection report]}
+     *
+     * @param args the file to import and optionally the rejection report
+     * @throws IOException if a file can not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BookingImporter <file> [rejection report]");
+            System.exit(1);
+        }
+        var file = Path.of(args[0]);
+
+        EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("default");
+        DBController.INSTANCE.setEntityManagerFactory(entityManagerFactory);
+        try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             var report = args.length > 1
+                     ? new PrintWriter(Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8))
+                     : new PrintWriter(System.out, true)) {
+            DBController.INSTANCE.migrate();
+            report.println("line,reason");
+            var importer = new BookingImporter(BookingFileFormat.of(file), r ->
+                    report.println(r.line() + ",\"" + r.reason().replace("\"", "\"\"") + "\""));
+            long start = System.nanoTime();
+            var summary = importer.importBookings(in);
+            report.flush();
+            System.err.println(summary + " in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+}
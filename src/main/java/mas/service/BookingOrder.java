@@ -0,0 +1,44 @@
+package mas.service;
+
+import mas.entity.Court;
+import mas.entity.Person;
+import mas.entity.Racket;
+import mas.entity.Trainer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Plain description of a booking to be made by the {@link BookingService}, independent of the GUI session state.
+ * The entities may come from any entity manager, only their identifiers are used to book.
+ *
+ * @param client      the client paying for the booking
+ * @param participant the participant of the booking, the client takes part if null
+ * @param court       the booked court
+ * @param start       the start time of the booking
+ * @param duration    the duration of the booking
+ * @param racket      the rented racket (optional)
+ * @param trainer     the booked trainer, a training is booked if present (optional)
+ * @param comment     the comment for a reservation (optional, ignored for trainings)
+ */
+public record BookingOrder(Person client, Person participant, Court court, LocalDateTime start, Duration duration,
+                           Racket racket, Trainer trainer, String comment) {
+
+    /**
+     * Returns the participant of the booking, which is the client if no other participant is given.
+     *
+     * @return the participant of the booking
+     */
+    public Person effectiveParticipant() {
+        return participant != null ? participant : client;
+    }
+
+    /**
+     * Returns the part of the order the price depends on.
+     *
+     * @return the booking request to be priced
+     */
+    public BookingRequest toRequest() {
+        return new BookingRequest(court, start, duration, racket, trainer);
+    }
+}
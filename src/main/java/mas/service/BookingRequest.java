@@ -0,0 +1,20 @@
+package mas.service;
+
+import mas.entity.Court;
+import mas.entity.Racket;
+import mas.entity.Trainer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Plain description of a court booking to be priced, independent of the GUI session state.
+ *
+ * @param court    the booked court
+ * @param start    the start time of the booking
+ * @param duration the duration of the booking
+ * @param racket   the rented racket (optional)
+ * @param trainer  the booked trainer (optional)
+ */
+public record BookingRequest(Court court, LocalDateTime start, Duration duration, Racket racket, Trainer trainer) {
+}
@@ -0,0 +1,257 @@
+package mas.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+import mas.entity.*;
+import mas.util.DBController;
+import mas.util.TimeUnavailableException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Enum class representing a singleton booking service for the Tennis Courts management application.
+ * It validates, prices and persists {@link BookingOrder}s without any GUI state, so bookings can be made
+ * by the GUI, batch jobs and servers alike, also concurrently. It books courts, rackets and trainers safely
+ * when several terminals book at the same time.
+ * <p>
+ * Every booking runs in a unit of work of its own. The {@link SlotClaim}s of the booked court, racket and trainer
+ * on the days of the booking are loaded with {@link LockModeType#OPTIMISTIC_FORCE_INCREMENT}, or created if missing,
+ * so their versions are incremented on commit. Of two concurrent bookings of the same court, racket or trainer
+ * on the same day only the first one commits, the other one fails on the version check or the unique constraint
+ * of a new claim. It is then retried, this time seeing the committed booking in its availability check,
+ * so no slot is ever booked twice. Bookings on different courts or days do not wait for each other.
+ * <p>
+ * Within this process the bookings of the same slot are serialized beforehand by the {@link SlotLockManager},
+ * which locks the same slots the claims are made for, so the optimistic locking only has to resolve conflicts
+ * with other processes.
+ */
+public enum BookingService {
+    INSTANCE;
+
+    /**
+     * Number of attempts made to book before a conflict with concurrent bookings is reported.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Time waited before the first retry, doubled before every next one.
+     */
+    private static final long BACKOFF_MILLIS = 20;
+
+    /**
+     * Checks the given order for missing values and for breaking the booking rules which do not need the database:
+     * the booking has to start in the future and fit in the opening hours of a single day.
+     *
+     * @param order the order to check
+     * @return the descriptions of the problems found, empty if there are none
+     */
+    public List<String> validate(BookingOrder order) {
+        return validate(order, LocalDateTime.now());
+    }
+
+    /**
+     * Checks the given order like {@link #validate(BookingOrder)}, but with the given earliest start time,
+     * so that past bookings, e.g. imported from another system, can be checked as well.
+     *
+     * @param order         the order to check
+     * @param earliestStart the time the booking has to start after, null for no limit
+     * @return the descriptions of the problems found, empty if there are none
+     */
+    public List<String> validate(BookingOrder order, LocalDateTime earliestStart) {
+        List<String> problems = new ArrayList<>();
+        if (order.client() == null) problems.add("client is required");
+        if (order.court() == null) problems.add("court is required");
+        if (order.start() == null) problems.add("start is required");
+        if (order.duration() == null) problems.add("duration is required");
+        else if (order.duration().isNegative() || order.duration().isZero()) problems.add("duration must be positive");
+        if (!problems.isEmpty()) return problems;
+
+        var start = order.start();
+        var end = order.start().plus(order.duration());
+        if (earliestStart != null && !start.isAfter(earliestStart))
+            problems.add("start must be after " + earliestStart.truncatedTo(ChronoUnit.MINUTES));
+        if (start.toLocalTime().isBefore(Court.getOpeningHour()) || !end.toLocalDate().equals(start.toLocalDate())
+                || end.toLocalTime().isAfter(Court.getClosingHour()))
+            problems.add("booking must fit in the opening hours %s-%s".formatted(Court.getOpeningHour(), Court.getClosingHour()));
+        return problems;
+    }
+
+    /**
+     * Validates, prices and persists the given order. A training is booked if the order includes a trainer,
+     * a reservation otherwise.
+     *
+     * @param order the booking to make
+     * @return the persisted booking with its price
+     * @throws InvalidBookingException  if the order is incomplete or breaks the booking rules
+     * @throws TimeUnavailableException if the court, racket or trainer is unavailable at the requested time
+     * @throws OptimisticLockException  if the booking kept conflicting with concurrent bookings
+     */
+    public BookingConfirmation book(BookingOrder order) {
+        var problems = validate(order);
+        if (!problems.isEmpty()) throw new InvalidBookingException(problems);
+
+        var confirmation = SlotLockManager.INSTANCE.withLocks(SlotLockManager.slotsOf(order.toRequest()), () -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return DBController.INSTANCE.fromTransaction(em -> book(em, order));
+                } catch (RuntimeException e) {
+                    if (!isConflict(e) || attempt == MAX_ATTEMPTS) throw e;
+                    backOff(attempt);
+                }
+            }
+        });
+        DBController.INSTANCE.invalidateAvailabilityCache();
+        return confirmation;
+    }
+
+    /**
+     * Cancels the booking of the given type with the given identifier by deleting it.
+     *
+     * @param type the type of the booking, {@link Reservation} or {@link Training}
+     * @param id   the identifier of the booking
+     * @return true if the booking was cancelled, false if it does not exist
+     */
+    public boolean cancel(Class<? extends Booking> type, Long id) {
+        boolean cancelled = DBController.INSTANCE.fromTransaction(em -> {
+            var booking = em.find(type, id);
+            if (booking == null) return false;
+            em.remove(booking);
+            return true;
+        });
+        if (cancelled) DBController.INSTANCE.invalidateAvailabilityCache();
+        return cancelled;
+    }
+
+    /**
+     * Prices and persists the given validated order with the given entity manager, within an active transaction.
+     * The slots of the booked court, racket and trainer are claimed for a version increment on commit.
+     */
+    BookingConfirmation book(EntityManager em, BookingOrder order) {
+        var start = order.start();
+        var duration = order.duration();
+
+        var court = find(em, Court.class, order.court().getId());
+        var racket = order.racket() == null ? null : find(em, Racket.class, order.racket().getId());
+        var trainer = order.trainer() == null ? null : find(em, Trainer.class, order.trainer().getId());
+        SlotLockManager.slotsOf(order.toRequest()).forEach(slot -> claim(em, slot));
+        var client = em.find(Person.class, order.client().getId());
+        var participant = em.find(Person.class, order.effectiveParticipant().getId());
+
+        List<String> problems = new ArrayList<>();
+        if (client == null || !client.getPersonTypes().contains(Person.PersonType.CLIENT))
+            problems.add("client is not a registered client");
+        if (participant == null || !participant.getPersonTypes().contains(Person.PersonType.PARTICIPANT))
+            problems.add("participant is not a registered participant");
+        if (!problems.isEmpty()) throw new InvalidBookingException(problems);
+
+        if (racket != null && !racket.isAvailable(start, duration))
+            throw new TimeUnavailableException(racket, start, duration);
+
+        var quote = PricingEngine.INSTANCE.quote(new BookingRequest(court, start, duration, racket, trainer));
+        if (trainer != null) {
+            var training = Training.makeReservation(client, participant, trainer, court, start, duration);
+            if (racket != null) training.addEquipment(racket);
+            em.persist(training);
+            return new BookingConfirmation(training, quote);
+        }
+
+        var reservation = Reservation.makeReservation(start, duration, court, racket, client, participant, order.comment());
+        em.persist(reservation);
+        return new BookingConfirmation(reservation, quote);
+    }
+
+    /**
+     * Loads the given entity.
+     */
+    private static <T> T find(EntityManager em, Class<T> type, Long id) {
+        var entity = em.find(type, id);
+        if (entity == null) throw new IllegalArgumentException(type.getSimpleName() + " " + id + " does not exist");
+        return entity;
+    }
+
+    /**
+     * Marks the claim of the given slot for a version increment on commit, creating the claim if there is none yet.
+     */
+    static void claim(EntityManager em, SlotLockManager.SlotKey slot) {
+        var claim = em.createQuery("SELECT c FROM SlotClaim c " +
+                        "WHERE c.kind = :kind AND c.resourceId = :id AND c.date = :date", SlotClaim.class)
+                .setParameter("kind", slot.kind())
+                .setParameter("id", slot.id())
+                .setParameter("date", slot.date())
+                .setLockMode(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+                .getResultStream().findFirst();
+        if (claim.isEmpty()) em.persist(new SlotClaim(slot));
+    }
+
+    /**
+     * Claims the given slots at once, for many bookings made in a single unit of work: the versions of the existing
+     * claims are incremented right away with a single update of each kind of resource, and the missing claims
+     * are created. The update holds the claims until commit, so when it runs before the availability checks,
+     * a concurrent booking of the slots either is seen by the checks or fails on its version check.
+     */
+    static void claimAll(EntityManager em, Collection<SlotLockManager.SlotKey> slots) {
+        Map<SlotLockManager.Kind, Set<SlotLockManager.SlotKey>> byKind = new EnumMap<>(SlotLockManager.Kind.class);
+        slots.forEach(slot -> byKind.computeIfAbsent(slot.kind(), k -> new HashSet<>()).add(slot));
+        byKind.forEach((kind, missing) -> {
+            var ids = missing.stream().map(SlotLockManager.SlotKey::id).collect(Collectors.toSet());
+            var from = missing.stream().map(SlotLockManager.SlotKey::date).min(Comparator.naturalOrder()).orElseThrow();
+            var to = missing.stream().map(SlotLockManager.SlotKey::date).max(Comparator.naturalOrder()).orElseThrow();
+            List<Long> claimed = new ArrayList<>();
+            for (Object[] claim : em.createQuery("SELECT c.id, c.resourceId, c.date FROM SlotClaim c " +
+                            "WHERE c.kind = :kind AND c.resourceId IN :ids AND c.date BETWEEN :from AND :to", Object[].class)
+                    .setParameter("kind", kind)
+                    .setParameter("ids", ids)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList()) {
+                if (missing.remove(new SlotLockManager.SlotKey(kind, (Long) claim[1], (LocalDate) claim[2])))
+                    claimed.add((Long) claim[0]);
+            }
+            if (!claimed.isEmpty()) {
+                em.createQuery("UPDATE SlotClaim c SET c.version = c.version + 1 WHERE c.id IN :ids")
+                        .setParameter("ids", claimed)
+                        .executeUpdate();
+            }
+            missing.forEach(slot -> em.persist(new SlotClaim(slot)));
+        });
+    }
+
+    /**
+     * Checks if the given failure was caused by a concurrent booking of a claimed slot:
+     * a concurrent modification of its claim, or a concurrent creation of it.
+     *
+     * @param e the failure
+     * @return true if the booking may succeed when tried again, false otherwise
+     */
+    public static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) return true;
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase().contains(SlotClaim.UNIQUE_CONSTRAINT)) return true;
+        }
+        return false;
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(BACKOFF_MILLIS << (attempt - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a booking", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package mas.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Exception thrown when a booking order is incomplete or breaks the booking rules.
+ */
+@Getter
+public class InvalidBookingException extends RuntimeException {
+
+    /**
+     * The descriptions of the problems found in the order.
+     */
+    private final List<String> problems;
+
+    /**
+     * Constructs an InvalidBookingException with the given problems.
+     *
+     * @param problems the descriptions of the problems found in the order
+     */
+    public InvalidBookingException(List<String> problems) {
+        super("Invalid booking: " + String.join("; ", problems));
+        this.problems = List.copyOf(problems);
+    }
+}
@@ -0,0 +1,193 @@
+package mas.service;
+
+import mas.entity.*;
+import mas.util.DBController;
+import mas.util.StaticStorageSnapshot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enum class representing a singleton pricing engine for the Tennis Courts management application.
+ * It is the single place calculating booking prices. The court rates are compiled from the
+ * static storage snapshot into a rate table held in minor currency units, so calculating
+ * a quote does not touch the database nor chain {@link BigDecimal} operations.
+ * Amounts are rounded half up to whole minor units wherever they have a fraction of one: the configured prices
+ * when converted to minor units, and each part of a quote when prorated to the duration of the booking.
+ */
+public enum PricingEngine {
+    INSTANCE;
+
+    /**
+     * Number of minor currency units in a major one.
+     */
+    private static final int MINOR_UNIT_SCALE = 2;
+
+    /**
+     * Rounding of amounts with a fraction of a minor unit.
+     */
+    private static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+
+    private static final long MINUTES_PER_HOUR = 60;
+
+    /**
+     * Court rates compiled from a static storage snapshot.
+     *
+     * @param source                the snapshot the rates were compiled from
+     * @param roofedPerHour         the price per hour for a roofed court
+     * @param heatingSurcharge      the heating surcharge for a roofed court
+     * @param heatingSeasonStartDay the epoch day of the heating season start
+     * @param heatingSeasonEndDay   the epoch day of the heating season end
+     * @param unroofedPerHour       the price per hour for an unroofed court
+     */
+    private record RateTable(StaticStorageSnapshot source, long roofedPerHour, long heatingSurcharge,
+                             long heatingSeasonStartDay, long heatingSeasonEndDay, long unroofedPerHour) {
+
+        static RateTable of(StaticStorageSnapshot snapshot) {
+            return new RateTable(snapshot,
+                    toMinorUnits(snapshot.courtRoofedPricePerHour()),
+                    toMinorUnits(snapshot.courtRoofedHeatingSurcharge()),
+                    snapshot.courtRoofedHeatingSeasonStart().toEpochDay(),
+                    snapshot.courtRoofedHeatingSeasonEnd().toEpochDay(),
+                    toMinorUnits(snapshot.courtUnroofedPricePerHour()));
+        }
+    }
+
+    private volatile RateTable rateTable;
+
+    /**
+     * Minor unit values of the racket and trainer prices, keyed by the price itself.
+     */
+    private final Map<BigDecimal, Long> minorUnits = new ConcurrentHashMap<>();
+
+    /**
+     * Calculates the price of the given booking.
+     *
+     * @param request the booking to price
+     * @return the quote of the booking
+     * @throws IllegalStateException if the court is of unknown type
+     */
+    public Quote quote(BookingRequest request) {
+        return quote(request, rates());
+    }
+
+    /**
+     * Calculates the prices of the given bookings using the same rates for all of them.
+     *
+     * @param requests the bookings to price
+     * @return the quotes of the bookings, in order of the requests
+     * @throws IllegalStateException if any court is of unknown type
+     */
+    public List<Quote> quote(List<BookingRequest> requests) {
+        RateTable rates = rates();
+        List<Quote> quotes = new ArrayList<>(requests.size());
+        for (BookingRequest request : requests) {
+            quotes.add(quote(request, rates));
+        }
+        return quotes;
+    }
+
+    /**
+     * Returns the price per hour for the given court in minor currency units.
+     *
+     * @param court the court
+     * @return the price per hour for the court
+     * @throws IllegalStateException if the court is of unknown type
+     */
+    public long courtPricePerHour(Court court) {
+        return courtPricePerHour(court, rates());
+    }
+
+    /**
+     * Returns the heating surcharge for the given court on the given date in minor currency units.
+     * The surcharge applies to roofed courts within the heating season only.
+     *
+     * @param court the court
+     * @param date  the date of the booking
+     * @return the heating surcharge for the court
+     */
+    public long heatingSurcharge(Court court, LocalDate date) {
+        return heatingSurcharge(court, date, rates());
+    }
+
+    /**
+     * Converts the given amount in minor currency units to an amount in major units.
+     *
+     * @param minorUnits the amount in minor currency units
+     * @return the amount in major currency units
+     */
+    public static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, MINOR_UNIT_SCALE);
+    }
+
+    /**
+     * Converts the given amount in major currency units to minor units, rounding a fraction of a minor unit half up.
+     *
+     * @param amount the amount in major currency units
+     * @return the amount in minor currency units
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(MINOR_UNIT_SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    private Quote quote(BookingRequest request, RateTable rates) {
+        if (request.start() == null || request.duration() == null) return Quote.ZERO;
+
+        long minutes = request.duration().toMinutes();
+        long courtPrice = 0;
+        long heatingSurcharge = 0;
+        if (request.court() != null) {
+            courtPrice = perDuration(courtPricePerHour(request.court(), rates), minutes);
+            heatingSurcharge = heatingSurcharge(request.court(), request.start().toLocalDate(), rates);
+        }
+        long racketPrice = request.racket() == null ? 0 : perDuration(cachedMinorUnits(request.racket().getPricePerHour()), minutes);
+        long trainerPrice = request.trainer() == null ? 0 : perDuration(cachedMinorUnits(request.trainer().getPricePerHour()), minutes);
+
+        return new Quote(courtPrice, heatingSurcharge, racketPrice, trainerPrice);
+    }
+
+    private static long courtPricePerHour(Court court, RateTable rates) {
+        if (court instanceof CourtRoofed) return rates.roofedPerHour();
+        if (court instanceof CourtUnroofed) return rates.unroofedPerHour();
+        throw new IllegalStateException("Unknown court type");
+    }
+
+    private static long heatingSurcharge(Court court, LocalDate date, RateTable rates) {
+        if (!(court instanceof CourtRoofed)) return 0;
+        long day = date.toEpochDay();
+        return day < rates.heatingSeasonStartDay() || day > rates.heatingSeasonEndDay() ? 0 : rates.heatingSurcharge();
+    }
+
+    /**
+     * Prorates the given price per hour to the given number of minutes, rounding half up like {@link #toMinorUnits}.
+     */
+    private static long perDuration(long pricePerHour, long minutes) {
+        long price = pricePerHour * minutes;
+        long half = MINUTES_PER_HOUR / 2;
+        return price >= 0 ? (price + half) / MINUTES_PER_HOUR : -((half - price) / MINUTES_PER_HOUR);
+    }
+
+    private long cachedMinorUnits(BigDecimal amount) {
+        return minorUnits.computeIfAbsent(amount, PricingEngine::toMinorUnits);
+    }
+
+    /**
+     * Returns the rate table compiled from the current static storage snapshot,
+     * recompiling it whenever the snapshot has been swapped.
+     */
+    private RateTable rates() {
+        StaticStorageSnapshot snapshot = DBController.INSTANCE.getStaticStorageSnapshot();
+        RateTable rates = rateTable;
+        if (rates == null || rates.source() != snapshot) {
+            rates = RateTable.of(snapshot);
+            rateTable = rates;
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,39 @@
+package mas.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Price of a single booking calculated by the {@link PricingEngine}.
+ * All the amounts are held in minor currency units (e.g. grosze) and converted
+ * to {@link BigDecimal} only for display.
+ *
+ * @param courtPrice       the price for the court time
+ * @param heatingSurcharge the heating surcharge of a roofed court
+ * @param racketPrice      the price for the racket rental
+ * @param trainerPrice     the price for the trainer
+ */
+public record Quote(long courtPrice, long heatingSurcharge, long racketPrice, long trainerPrice) {
+
+    /**
+     * Quote of a booking that costs nothing.
+     */
+    public static final Quote ZERO = new Quote(0, 0, 0, 0);
+
+    /**
+     * Returns the total price of the booking in minor currency units.
+     *
+     * @return the total price of the booking
+     */
+    public long total() {
+        return courtPrice + heatingSurcharge + racketPrice + trainerPrice;
+    }
+
+    /**
+     * Returns the total price of the booking as an amount in major currency units.
+     *
+     * @return the total price of the booking
+     */
+    public BigDecimal totalAmount() {
+        return PricingEngine.toAmount(total());
+    }
+}
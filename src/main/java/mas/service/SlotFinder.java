@@ -0,0 +1,264 @@
+package mas.service;
+
+import jakarta.persistence.EntityManager;
+import mas.entity.Court;
+import mas.entity.Racket;
+import mas.entity.Trainer;
+import mas.util.DBController;
+import mas.util.TimeInterval;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Enum class representing a singleton finder of the best bookable slots, answering questions like
+ * "when can I play with trainer X and a Yonex racket this week" without clicking through the dates.
+ * <p>
+ * The bookings of the courts, of the trainer and of the rackets within the searched days are read with one
+ * range query each. For every day the free intervals of each court are merged with the free intervals of the
+ * trainer (working hours without trainings) in a single sweep, and the slot starts within the merged intervals
+ * are matched against the free intervals of the rackets, so no availability check per hour and resource is made.
+ * The options are priced by the {@link PricingEngine} and only the best ones are kept, in a bounded heap.
+ */
+public enum SlotFinder {
+    INSTANCE;
+
+    /**
+     * The order of the found options.
+     */
+    public enum Ranking {
+        /**
+         * The cheapest options first, the earlier ones first among equally priced.
+         */
+        CHEAPEST,
+        /**
+         * The earliest options first, the cheaper ones first among equally early.
+         */
+        EARLIEST
+    }
+
+    /**
+     * A search for free slots.
+     *
+     * @param from     the first day searched
+     * @param to       the last day searched, inclusive
+     * @param duration the duration of the booking
+     * @param trainer  the identifier of the trainer to train with, null for a reservation without a trainer
+     * @param racket   the condition of the racket to rent, e.g. {@code r -> "Yonex".equals(r.getManufacturer())},
+     *                 null for no racket
+     * @param ranking  the order of the options
+     */
+    public record Query(LocalDate from, LocalDate to, Duration duration, Long trainer, Predicate<Racket> racket,
+                        Ranking ranking) {
+    }
+
+    /**
+     * A bookable combination of a court, time, trainer and racket with its price.
+     *
+     * @param court    the court
+     * @param start    the start time of the booking
+     * @param duration the duration of the booking
+     * @param trainer  the trainer, null if none was asked for
+     * @param racket   the cheapest free racket meeting the condition, null if none was asked for
+     * @param quote    the price of the booking
+     */
+    public record Option(Court court, LocalDateTime start, Duration duration, Trainer trainer, Racket racket,
+                         Quote quote) {
+
+        /**
+         * Returns the booking of the option, e.g. to be priced again.
+         *
+         * @return the booking of the option
+         */
+        public BookingRequest toRequest() {
+            return new BookingRequest(court, start, duration, racket, trainer);
+        }
+    }
+
+    /**
+     * Time between the starts of the offered slots, which start on the hour counted from the opening hour,
+     * like the slots offered by the application.
+     */
+    private static final Duration SLOT_STEP = Duration.ofHours(1);
+
+    /**
+     * Finds the best options to book within the days of the given query, starting in the future.
+     * For every court and start time only the cheapest free racket is offered.
+     * All the reading is done in a single read-only unit of work.
+     *
+     * @param query the search
+     * @param limit the maximum number of options returned
+     * @return the best options, in order of the ranking of the query
+     * @throws IllegalArgumentException if the query is incomplete, its days are reversed, its duration or the limit
+     *                                  is not positive
+     * @throws NoSuchElementException   if the trainer of the query does not exist
+     */
+    public List<Option> find(Query query, int limit) {
+        if (query.from() == null || query.to() == null || query.duration() == null || query.ranking() == null)
+            throw new IllegalArgumentException("from, to, duration and ranking are required");
+        if (query.to().isBefore(query.from())) throw new IllegalArgumentException("to must not be before from");
+        if (query.duration().isNegative() || query.duration().isZero())
+            throw new IllegalArgumentException("duration must be positive");
+        if (limit < 1) throw new IllegalArgumentException("limit must be positive");
+
+        return DBController.INSTANCE.readOnly(em -> find(em, query, limit));
+    }
+
+    private List<Option> find(EntityManager em, Query query, int limit) {
+        var rangeStart = query.from().atStartOfDay();
+        var rangeEnd = query.to().plusDays(1).atStartOfDay();
+
+        Trainer trainer = null;
+        if (query.trainer() != null) {
+            trainer = em.find(Trainer.class, query.trainer());
+            if (trainer == null) throw new NoSuchElementException("trainer " + query.trainer() + " does not exist");
+        }
+        List<Court> courts = DBController.INSTANCE.getCourts().stream()
+                .sorted(Comparator.comparing(Court::getNumber))
+                .toList();
+        List<Racket> rackets = null;
+        if (query.racket() != null) {
+            rackets = DBController.INSTANCE.getRackets().stream()
+                    .filter(query.racket())
+                    .sorted(Comparator.comparing(Racket::getPricePerHour).thenComparing(Racket::getId))
+                    .toList();
+            if (rackets.isEmpty()) return List.of();
+        }
+
+        var courtBusy = busyByDate(DBController.INSTANCE.getBookedSlots(query.from(), query.to().plusDays(1)));
+        var racketBusy = rackets == null ? Map.<Long, Map<LocalDate, List<TimeInterval>>>of()
+                : busyByDate(DBController.INSTANCE.getRacketBookedSlots(rangeStart, rangeEnd));
+        Map<LocalDate, List<TimeInterval>> trainerBusy = new HashMap<>();
+        if (trainer != null) {
+            // the trainings come ordered by their start
+            for (Object[] row : DBController.INSTANCE.getTrainerBookings(trainer, rangeStart, rangeEnd)) {
+                addBusy(trainerBusy, (LocalDateTime) row[0], (Duration) row[1]);
+            }
+        }
+
+        var ranking = comparator(query.ranking());
+        PriorityQueue<Option> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        var now = LocalDateTime.now();
+
+        for (var date = query.from(); !date.isAfter(query.to()); date = date.plusDays(1)) {
+            var opening = new TimeInterval(date.atTime(Court.getOpeningHour()), date.atTime(Court.getClosingHour()));
+            // options of later days can not be earlier than the ones already found
+            if (query.ranking() == Ranking.EARLIEST && best.size() == limit && best.peek().start().isBefore(opening.start()))
+                break;
+
+            var window = trainer == null ? opening : trainer.getWorkingWindow(date).orElse(null);
+            if (window == null) continue;
+            var trainerFree = TimeInterval.gaps(window, trainerBusy.getOrDefault(date, List.of()));
+            if (trainerFree.isEmpty()) continue;
+
+            List<List<TimeInterval>> racketFree = new ArrayList<>();
+            if (rackets != null) {
+                for (Racket racket : rackets) {
+                    racketFree.add(TimeInterval.gaps(opening, racketBusy.getOrDefault(racket.getId(), Map.of())
+                            .getOrDefault(date, List.of())));
+                }
+            }
+
+            for (Court court : courts) {
+                // the price does not depend on the hour, so a court whose cheapest option of the day
+                // can not make it into the best ones is skipped as a whole
+                if (query.ranking() == Ranking.CHEAPEST && best.size() == limit) {
+                    var cheapest = PricingEngine.INSTANCE.quote(new BookingRequest(court, opening.start(), query.duration(),
+                            rackets == null ? null : rackets.get(0), trainer));
+                    if (cheapest.total() > best.peek().quote().total()) continue;
+                }
+
+                var courtFree = TimeInterval.gaps(opening, courtBusy.getOrDefault(court.getId(), Map.of())
+                        .getOrDefault(date, List.of()));
+                for (TimeInterval free : TimeInterval.intersect(courtFree, trainerFree)) {
+                    for (var start = firstSlotStart(opening.start(), free.start());
+                         !start.plus(query.duration()).isAfter(free.end()); start = start.plus(SLOT_STEP)) {
+                        if (!start.isAfter(now) || !court.isInSeason(start)) continue;
+
+                        Racket racket = null;
+                        if (rackets != null) {
+                            racket = cheapestFree(rackets, racketFree, start, start.plus(query.duration()));
+                            if (racket == null) continue;
+                        }
+                        var quote = PricingEngine.INSTANCE.quote(new BookingRequest(court, start, query.duration(), racket, trainer));
+                        offer(best, new Option(court, start, query.duration(), trainer, racket, quote), limit, ranking);
+                    }
+                }
+            }
+        }
+
+        List<Option> options = new ArrayList<>(best);
+        options.sort(ranking);
+        return options;
+    }
+
+    /**
+     * Groups the given rows holding an identifier, start and duration of a booking by the identifier
+     * and by the dates the bookings touch, as busy periods sorted by their start.
+     */
+    private static Map<Long, Map<LocalDate, List<TimeInterval>>> busyByDate(List<Object[]> rows) {
+        Map<Long, Map<LocalDate, List<TimeInterval>>> busy = new HashMap<>();
+        for (Object[] row : rows) {
+            addBusy(busy.computeIfAbsent((Long) row[0], id -> new HashMap<>()), (LocalDateTime) row[1], (Duration) row[2]);
+        }
+        busy.values().forEach(byDate -> byDate.values().forEach(periods -> periods.sort(Comparator.comparing(TimeInterval::start))));
+        return busy;
+    }
+
+    /**
+     * Adds the given booking to the busy periods of every day it touches, since a booking may reach into the next day.
+     */
+    private static void addBusy(Map<LocalDate, List<TimeInterval>> byDate, LocalDateTime start, Duration duration) {
+        var end = start.plus(duration);
+        for (var day = start.toLocalDate(); day.atStartOfDay().isBefore(end); day = day.plusDays(1)) {
+            byDate.computeIfAbsent(day, d -> new ArrayList<>()).add(new TimeInterval(start, end));
+        }
+    }
+
+    /**
+     * Returns the first slot start not before the given time, slots starting every {@link #SLOT_STEP} from opening.
+     */
+    private static LocalDateTime firstSlotStart(LocalDateTime opening, LocalDateTime time) {
+        long step = SLOT_STEP.toMinutes();
+        long offset = Duration.between(opening, time).toMinutes();
+        return opening.plusMinutes(Math.max(0, -Math.floorDiv(-offset, step) * step));
+    }
+
+    /**
+     * Returns the first of the given rackets, ordered by price, free during the whole given period.
+     */
+    private static Racket cheapestFree(List<Racket> rackets, List<List<TimeInterval>> racketFree,
+                                       LocalDateTime start, LocalDateTime end) {
+        for (int i = 0; i < rackets.size(); i++) {
+            for (TimeInterval free : racketFree.get(i)) {
+                if (free.contains(start, end)) return rackets.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static void offer(PriorityQueue<Option> best, Option option, int limit, Comparator<Option> ranking) {
+        if (best.size() < limit) {
+            best.add(option);
+        } else if (ranking.compare(option, best.peek()) < 0) {
+            best.poll();
+            best.add(option);
+        }
+    }
+
+    private static Comparator<Option> comparator(Ranking ranking) {
+        Comparator<Option> byPrice = Comparator.comparingLong(o -> o.quote().total());
+        Comparator<Option> byStart = Comparator.comparing(Option::start);
+        var primary = ranking == Ranking.CHEAPEST ? byPrice.thenComparing(byStart) : byStart.thenComparing(byPrice);
+        return primary.thenComparing(o -> o.court().getNumber());
+    }
+}
@@ -0,0 +1,124 @@
+package mas.service;
+
+import mas.entity.SlotClaim;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Enum class representing a singleton manager of the in-process locks of bookable slots.
+ * A slot is a court, racket or trainer on a single day, the same granularity as the {@link SlotClaim} whose version
+ * the {@link BookingService} increments on every booking. Bookings of the same slot are serialized by the manager,
+ * so they do not race each other into optimistic lock conflicts, while bookings on different courts or days
+ * run fully in parallel.
+ * <p>
+ * The slots are mapped onto a fixed number of lock stripes, so the memory used does not grow with the number of
+ * courts, rackets and trainers. The stripes of a booking are always locked in ascending order, which rules out deadlocks
+ * between bookings claiming several slots, like a training with a court, a racket and a trainer.
+ * The locks only protect bookings made by this process, other processes are still guarded by the optimistic
+ * locking of the booked entities.
+ */
+public enum SlotLockManager {
+    INSTANCE;
+
+    /**
+     * The kind of resource a slot belongs to.
+     */
+    public enum Kind {
+        COURT, RACKET, TRAINER
+    }
+
+    /**
+     * A bookable resource on a single day.
+     *
+     * @param kind the kind of the resource
+     * @param id   the identifier of the resource
+     * @param date the day
+     */
+    public record SlotKey(Kind kind, Long id, LocalDate date) {
+    }
+
+    /**
+     * Number of lock stripes, a power of two.
+     */
+    private static final int STRIPES = 256;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    SlotLockManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the slots claimed by the given booking: its court, its racket and its trainer, if any,
+     * on every day the booking takes place on, i.e. also the next day for a booking crossing midnight.
+     *
+     * @param request the booking
+     * @return the slots claimed by the booking
+     */
+    public static List<SlotKey> slotsOf(BookingRequest request) {
+        return slotsOf(request.court().getId(), request.racket() == null ? null : request.racket().getId(),
+                request.trainer() == null ? null : request.trainer().getId(), request.start(), request.duration());
+    }
+
+    /**
+     * Returns the slots claimed by a booking of the court, racket and trainer with the given identifiers
+     * on every day the booking takes place on.
+     *
+     * @param court    the identifier of the court
+     * @param racket   the identifier of the racket, null for none
+     * @param trainer  the identifier of the trainer, null for none
+     * @param start    the start time of the booking
+     * @param duration the duration of the booking
+     * @return the slots claimed by the booking
+     */
+    public static List<SlotKey> slotsOf(Long court, Long racket, Long trainer, LocalDateTime start, Duration duration) {
+        var first = start.toLocalDate();
+        var last = start.plus(duration).minusNanos(1).toLocalDate();
+        List<SlotKey> slots = new ArrayList<>(3);
+        for (var date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            slots.add(new SlotKey(Kind.COURT, court, date));
+            if (racket != null) slots.add(new SlotKey(Kind.RACKET, racket, date));
+            if (trainer != null) slots.add(new SlotKey(Kind.TRAINER, trainer, date));
+        }
+        return slots;
+    }
+
+    /**
+     * Runs the given work holding the locks of the given slots.
+     *
+     * @param slots the slots to lock
+     * @param work  the work to run
+     * @param <T>   the type of the result
+     * @return the result of the work
+     */
+    public <T> T withLocks(Collection<SlotKey> slots, Supplier<T> work) {
+        int[] indexes = slots.stream().mapToInt(SlotLockManager::stripeOf).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return work.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    private static int stripeOf(SlotKey slot) {
+        int hash = slot.hashCode();
+        // mix the higher bits into the lower ones the stripe is picked by
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
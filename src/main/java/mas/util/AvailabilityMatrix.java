@@ -0,0 +1,220 @@
+package mas.util;
+
+import lombok.Getter;
+import mas.entity.Court;
+import mas.entity.Racket;
+import mas.entity.Trainer;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed availability of all courts for every opening hour of a single day.
+ * Each court holds a bitmask of its unavailable hours (bit 0 being the opening hour),
+ * so a single cell lookup is O(1).
+ * <p>
+ * The matrix of the day picked in the GUI also holds the free intervals of the trainers and the occupied hours
+ * of the rackets, so the trainers and rackets are checked for the marked hours without querying the database.
+ */
+public class AvailabilityMatrix {
+
+    @Getter
+    private final LocalDate date;
+
+    @Getter
+    private final LocalTime openingHour;
+
+    @Getter
+    private final int hours;
+
+    @Getter
+    private final List<Court> courts;
+
+    private final Map<Long, Integer> courtIndexes = new HashMap<>();
+
+    private final long[] unavailableHours;
+
+    @Getter
+    private final List<Trainer> trainers = new ArrayList<>();
+
+    private final Map<Long, List<TimeInterval>> trainerFreeIntervals = new HashMap<>();
+
+    @Getter
+    private final List<Racket> rackets = new ArrayList<>();
+
+    private final Map<Long, Long> racketOccupiedHours = new HashMap<>();
+
+    /**
+     * Constructs an AvailabilityMatrix for the given date with all hours available
+     * except for the ones outside the courts' seasons.
+     *
+     * @param date        the date of the matrix
+     * @param openingHour the opening hour of the courts
+     * @param closingHour the closing hour of the courts
+     * @param courts      the courts of the matrix
+     */
+    public AvailabilityMatrix(LocalDate date, LocalTime openingHour, LocalTime closingHour, List<Court> courts) {
+        this.date = date;
+        this.openingHour = openingHour;
+        this.hours = (int) Duration.between(openingHour, closingHour).toHours();
+        this.courts = List.copyOf(courts);
+        this.unavailableHours = new long[courts.size()];
+
+        for (int i = 0; i < courts.size(); i++) {
+            Court court = courts.get(i);
+            courtIndexes.put(court.getId(), i);
+            for (int h = 0; h < hours; h++) {
+                if (!court.isInSeason(date.atTime(openingHour).plusHours(h))) unavailableHours[i] |= 1L << h;
+            }
+        }
+    }
+
+    /**
+     * Marks the hours covered by the given booking as unavailable for the court with the given id.
+     * Bookings of unknown courts and the parts of bookings outside the day's opening hours are ignored.
+     *
+     * @param courtId  the id of the booked court
+     * @param start    the start time of the booking
+     * @param duration the duration of the booking
+     */
+    public void markOccupied(Long courtId, LocalDateTime start, Duration duration) {
+        Integer i = courtIndexes.get(courtId);
+        if (i == null) return;
+
+        unavailableHours[i] |= HourBitmap.maskOf(date.atTime(openingHour), hours, start, duration);
+    }
+
+    /**
+     * Returns the hours of the day of the given court as a bitmap.
+     *
+     * @param court the court
+     * @return the bitmap of the court's hours, all occupied if the court is not in the matrix
+     */
+    public HourBitmap getHourBitmap(Court court) {
+        Integer i = courtIndexes.get(court.getId());
+        return new HourBitmap(date.atTime(openingHour), hours, i == null ? -1L : unavailableHours[i]);
+    }
+
+    /**
+     * Checks if the given court is available for the hour starting at the given time.
+     * Hours not covered by the matrix are checked directly with {@link Court#isAvailable}.
+     *
+     * @param court the court to check
+     * @param time  the start time of the hour
+     * @return true if the court is available, false otherwise
+     */
+    public boolean isAvailable(Court court, LocalDateTime time) {
+        Integer i = courtIndexes.get(court.getId());
+        long offset = Duration.between(date.atTime(openingHour), time).toMinutes();
+        if (i == null || offset < 0 || offset % 60 != 0 || offset / 60 >= hours) {
+            return court.isAvailable(time, Duration.ofHours(1));
+        }
+        return (unavailableHours[i] & (1L << (offset / 60))) == 0;
+    }
+
+    /**
+     * Checks if any court is available for at least one hour of the day.
+     *
+     * @return true if any court has a free hour, false otherwise
+     */
+    public boolean anyAvailable() {
+        long allHours = (1L << hours) - 1;
+        for (long unavailable : unavailableHours) {
+            if ((unavailable & allHours) != allHours) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the given trainer with the free intervals of the day to the matrix.
+     *
+     * @param trainer       the trainer
+     * @param freeIntervals the free intervals of the trainer on the date of the matrix, in chronological order
+     */
+    public void addTrainer(Trainer trainer, List<TimeInterval> freeIntervals) {
+        trainers.add(trainer);
+        trainerFreeIntervals.put(trainer.getId(), List.copyOf(freeIntervals));
+    }
+
+    /**
+     * Checks if the given trainer is available for at least one full hour of the day.
+     *
+     * @param trainer the trainer to check
+     * @return true if the trainer is available, false otherwise or if the trainer is not in the matrix
+     */
+    public boolean isAvailable(Trainer trainer) {
+        return trainerFreeIntervals.getOrDefault(trainer.getId(), List.of()).stream()
+                .anyMatch(TimeInterval::containsFullHour);
+    }
+
+    /**
+     * Checks if the given trainer is available during the whole given period.
+     *
+     * @param trainer  the trainer to check
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return true if the trainer is available, false otherwise or if the trainer is not in the matrix
+     */
+    public boolean isAvailable(Trainer trainer, LocalDateTime from, Duration duration) {
+        var to = from.plus(duration);
+        return trainerFreeIntervals.getOrDefault(trainer.getId(), List.of()).stream()
+                .anyMatch(free -> free.contains(from, to));
+    }
+
+    /**
+     * Adds the given racket with all hours available to the matrix.
+     *
+     * @param racket the racket
+     */
+    public void addRacket(Racket racket) {
+        rackets.add(racket);
+        racketOccupiedHours.putIfAbsent(racket.getId(), 0L);
+    }
+
+    /**
+     * Marks the hours covered by the given booking as occupied for the racket with the given id.
+     * Bookings of unknown rackets and the parts of bookings outside the day's opening hours are ignored.
+     *
+     * @param racketId the id of the booked racket
+     * @param start    the start time of the booking
+     * @param duration the duration of the booking
+     */
+    public void markRacketOccupied(Long racketId, LocalDateTime start, Duration duration) {
+        racketOccupiedHours.computeIfPresent(racketId,
+                (id, occupied) -> occupied | HourBitmap.maskOf(date.atTime(openingHour), hours, start, duration));
+    }
+
+    /**
+     * Checks if the given racket is free for at least one hour of the day.
+     *
+     * @param racket the racket to check
+     * @return true if the racket is free, false otherwise or if the racket is not in the matrix
+     */
+    public boolean isAvailable(Racket racket) {
+        Long occupied = racketOccupiedHours.get(racket.getId());
+        return occupied != null && new HourBitmap(date.atTime(openingHour), hours, occupied).anyFree();
+    }
+
+    /**
+     * Checks if the given racket is free during every hour of the given period.
+     *
+     * @param racket   the racket to check
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return true if the racket is free, false otherwise, if the racket is not in the matrix
+     * or if the period reaches out of the day's opening hours
+     */
+    public boolean isAvailable(Racket racket, LocalDateTime from, Duration duration) {
+        Long occupied = racketOccupiedHours.get(racket.getId());
+        var firstHour = date.atTime(openingHour);
+        if (occupied == null || from.isBefore(firstHour) || from.plus(duration).isAfter(firstHour.plusHours(hours)))
+            return false;
+        return (occupied & HourBitmap.maskOf(firstHour, hours, from, duration)) == 0;
+    }
+}
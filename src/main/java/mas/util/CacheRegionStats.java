@@ -0,0 +1,23 @@
+package mas.util;
+
+/**
+ * Point-in-time statistics of a second-level cache region.
+ *
+ * @param region          the name of the region
+ * @param hits            the number of lookups found in the region
+ * @param misses          the number of lookups not found in the region
+ * @param puts            the number of entries put into the region
+ * @param entriesInMemory the number of entries held in memory, or -1 if unknown
+ */
+public record CacheRegionStats(String region, long hits, long misses, long puts, long entriesInMemory) {
+
+    /**
+     * Returns the share of the lookups found in the region.
+     *
+     * @return the hit ratio between 0 and 1, or 0 if there were no lookups
+     */
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
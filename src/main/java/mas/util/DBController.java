@@ -1,55 +1,127 @@
 package mas.util;
 
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import javafx.beans.property.SimpleObjectProperty;
 import lombok.Getter;
 import lombok.Setter;
 import mas.entity.*;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.AbstractPersistentCollection;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 
+import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.time.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Enum class representing a singleton DB controller for a Tennis Courts management application.
  * Uses Hibernate for data persistence and JavaFX as the app engine.
+ * <p>
+ * Database work can be scoped to a unit of work with {@link DBController#inTransaction(Consumer)},
+ * {@link DBController#fromTransaction(Function)} and {@link DBController#readOnly(Function)}.
+ * Each unit of work runs on its own short-lived {@link EntityManager} created by the
+ * {@link EntityManagerFactory}, bound to the calling thread and closed when the work is done,
+ * so units of work can run on several threads in parallel.
  */
 public enum DBController {
     INSTANCE;
 
-    @Getter
+    /**
+     * The long-lived entity manager shared by the GUI, used outside of units of work.
+     */
     @Setter
     private EntityManager em;
 
+    @Getter
+    @Setter
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Condition of the training {@code t} taking place once, so its persisted start and end are its only occurrence.
+     * The persisted period of a cyclical training spans the whole series, so such trainings are looked up
+     * on their own and asked for their occurrences within the queried period instead.
+     */
+    private static final String SINGLE_TRAINING = "TYPE(t) = Training";
+
+    /**
+     * Batch size used by {@link DBController#persistAll} when JDBC batching is not configured.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * Number of rows updated at once by {@link DBController#migrate()}.
+     */
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+
+    /**
+     * Condition of the equipment {@code e} being free from {@code :from} to {@code :to}: it is neither the racket
+     * of an overlapping reservation nor used by an overlapping training. Both are decided by indexed range lookups.
+     * Cyclical trainings are left out, their equipment is excluded by {@link #getBusySeriesEquipment}.
+     */
+    private static final String EQUIPMENT_FREE = "NOT EXISTS (SELECT r.id FROM Reservation r " +
+            "WHERE r.racket.id = e.id AND r.end > :from AND r.start < :to) " +
+            "AND NOT EXISTS (SELECT t.id FROM Training t JOIN t.equipmentSet x " +
+            "WHERE x.id = e.id AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to)";
+
+    /**
+     * The entity manager of the unit of work running on the current thread.
+     */
+    private final ThreadLocal<EntityManager> unitOfWork = new ThreadLocal<>();
+
     @Getter
     private final SimpleObjectProperty<Reservation> tempReservation = new SimpleObjectProperty<>();
 
     @Getter
     private final SimpleObjectProperty<Training> tempTraining = new SimpleObjectProperty<>();
 
+    private final Map<YearMonth, MonthAvailability> monthAvailabilityCache = new ConcurrentHashMap<>();
+
+    /**
+     * The cached snapshot of the static storage, with the generation of the invalidation it was loaded after.
+     * Every invalidation starts a new generation, so a snapshot loaded before it is never cached after it.
+     */
+    private final AtomicReference<CachedSnapshot> staticStorageSnapshot = new AtomicReference<>(new CachedSnapshot(0, null));
+
+    private record CachedSnapshot(long generation, StaticStorageSnapshot snapshot) {
+    }
+
     /**
      * Seeds the database with initial data for the Tennis Courts management application.
      * Populates the database with static storage, courts, clients, participants, trainers,
      * trainings, rackets, and reservations.
      */
     public void seedDb() {
-        try {
-            em.getTransaction().begin();
-
+        inTransaction(em -> {
             // Create static storage
-            var staticStorage = new StaticStorage();
-            staticStorage.setCourtOpeningHour(LocalTime.of(9, 0));
-            staticStorage.setCourtClosingHour(LocalTime.of(21, 0));
-            staticStorage.setCourtRoofedPricePerHour(BigDecimal.valueOf(100));
-            staticStorage.setCourtRoofedHeatingSurcharge(BigDecimal.valueOf(30));
-            staticStorage.setCourtRoofedHeatingSeasonStart(LocalDate.of(LocalDate.now().getYear(), 10, 1));
-            staticStorage.setCourtRoofedHeatingSeasonEnd(staticStorage.getCourtRoofedHeatingSeasonStart().plusMonths(6));
-            staticStorage.setCourtUnroofedPricePerHour(BigDecimal.valueOf(80));
-            staticStorage.setCourtUnroofedSeasonStart(LocalDate.of(LocalDate.now().getYear(), 5, 1));
-            staticStorage.setCourtUnroofedSeasonEnd(staticStorage.getCourtUnroofedSeasonStart().plusMonths(4));
+            var staticStorage = defaultStaticStorage();
             em.persist(staticStorage);
 
             // Create courts
@@ -63,7 +135,7 @@ public enum DBController {
                     new CourtUnroofed(++nr, Court.SurfaceType.Grass),
                     new CourtUnroofed(++nr, Court.SurfaceType.Hard)
             };
-            Arrays.stream(courts).forEach(em::persist);
+            persistAll(em, Arrays.asList(courts));
 
             // Create clients
             List<Person> clients = List.of(
@@ -71,7 +143,7 @@ public enum DBController {
                     Person.registerClient("Zbigniew", "Żaba", "223456789"),
                     Person.registerClient("Konrad", "Wiśnia", "323456789", "c@a.pl")
             );
-            clients.forEach(em::persist);
+            persistAll(em, clients);
 
             // Create participants
             List<Person> participants = List.of(
@@ -79,7 +151,7 @@ public enum DBController {
                     Person.registerParticipant("Anna", "Kowalska", LocalDate.of(2004, 10, 10), clients.get(0)),
                     Person.registerParticipant("Jerzy", "Kowalski", clients.get(1))
             );
-            participants.forEach(em::persist);
+            persistAll(em, participants);
 
             // Create trainers
             List<Trainer> trainers = List.of(
@@ -91,7 +163,7 @@ public enum DBController {
                             DayOfWeek.SATURDAY, new WorkingHours(LocalTime.of(15, 0), LocalTime.of(18, 0)),
                             DayOfWeek.MONDAY, new WorkingHours(LocalTime.of(17, 0), LocalTime.of(21, 0))))
             );
-            trainers.forEach(em::persist);
+            persistAll(em, trainers);
 
             // Create trainings
             List<Training> trainings = new ArrayList<>();
@@ -108,7 +180,7 @@ public enum DBController {
                             .atTime(staticStorage.getCourtOpeningHour()),
                     Duration.between(staticStorage.getCourtOpeningHour(), staticStorage.getCourtClosingHour())));*/
 
-            trainings.forEach(em::persist);
+            persistAll(em, trainings);
 
             // Create rackets
             List<Racket> rackets = List.of(
@@ -116,7 +188,7 @@ public enum DBController {
                     new Racket("Willson", 150., BigDecimal.valueOf(20)),
                     new Racket("Head", 80., BigDecimal.valueOf(20))
             );
-            rackets.forEach(em::persist);
+            persistAll(em, rackets);
 
             // Create reservations
             LocalDate fullyBookedDay = LocalDate.now().plusDays(2);
@@ -164,23 +236,268 @@ public enum DBController {
                 }
             }
 
-            reservations.forEach(em::persist);
+            persistAll(em, reservations);
+        });
+        invalidateAvailabilityCache();
+    }
+
+    /**
+     * Creates the static storage entity with the default configuration of the tennis courts.
+     *
+     * @return the new, not yet persisted static storage entity
+     */
+    static StaticStorage defaultStaticStorage() {
+        var staticStorage = new StaticStorage();
+        staticStorage.setCourtOpeningHour(LocalTime.of(9, 0));
+        staticStorage.setCourtClosingHour(LocalTime.of(21, 0));
+        staticStorage.setCourtRoofedPricePerHour(BigDecimal.valueOf(100));
+        staticStorage.setCourtRoofedHeatingSurcharge(BigDecimal.valueOf(30));
+        staticStorage.setCourtRoofedHeatingSeasonStart(LocalDate.of(LocalDate.now().getYear(), 10, 1));
+        staticStorage.setCourtRoofedHeatingSeasonEnd(staticStorage.getCourtRoofedHeatingSeasonStart().plusMonths(6));
+        staticStorage.setCourtUnroofedPricePerHour(BigDecimal.valueOf(80));
+        staticStorage.setCourtUnroofedSeasonStart(LocalDate.of(LocalDate.now().getYear(), 5, 1));
+        staticStorage.setCourtUnroofedSeasonEnd(staticStorage.getCourtUnroofedSeasonStart().plusMonths(4));
+        return staticStorage;
+    }
+
+    /**
+     * Brings the data of an existing database up to date with the current mapping.
+     * The schema itself is updated by Hibernate, the columns added since are filled in here.
+     * Every step only touches the rows it has not migrated yet, so it is safe to run on every start.
+     */
+    public void migrate() {
+        fillBookingEnds("Reservation");
+        fillBookingEnds("Training");
+        initVersions("Court");
+        initVersions("Equipment");
+        initVersions("Trainer");
+    }
+
+    /**
+     * Sets the version of the rows of the given versioned entity stored before it was versioned.
+     *
+     * @param entity the name of the versioned entity
+     * @return the number of updated rows
+     */
+    private int initVersions(String entity) {
+        return fromTransaction(em -> em.createQuery("UPDATE " + entity + " e SET e.version = 0 WHERE e.version IS NULL")
+                .executeUpdate());
+    }
+
+    /**
+     * Fills the end time of the bookings of the given entity stored before it was persisted.
+     * The rows are updated in batches, each in a unit of work of its own, so a large booking history
+     * neither holds long locks nor a long transaction.
+     *
+     * @param entity the name of the booking entity
+     * @return the number of updated rows
+     */
+    private int fillBookingEnds(String entity) {
+        int total = 0;
+        int updated;
+        do {
+            updated = fromTransaction(em -> {
+                var ids = em.createQuery("SELECT b.id FROM " + entity + " b WHERE b.end IS NULL", Long.class)
+                        .setMaxResults(MIGRATION_BATCH_SIZE)
+                        .getResultList();
+                if (ids.isEmpty()) return 0;
+                return em.createQuery("UPDATE " + entity + " b SET b.end = b.start + b.duration WHERE b.id IN :ids")
+                        .setParameter("ids", ids)
+                        .executeUpdate();
+            });
+            total += updated;
+        } while (updated > 0);
+        return total;
+    }
+
+    /**
+     * Persists the given entities in a read-write unit of work using JDBC batches.
+     *
+     * @param entities the entities to persist
+     * @see DBController#persistAll(EntityManager, Iterable)
+     */
+    public void persistAll(Iterable<?> entities) {
+        inTransaction(em -> persistAll(em, entities));
+    }
+
+    /**
+     * Persists the given entities with the given entity manager using JDBC batches.
+     * The persistence context is flushed and cleared after every batch, so its size stays constant
+     * no matter how many entities are persisted. All the entities are detached afterwards,
+     * as is any entity managed by the entity manager before the call.
+     *
+     * @param em       the entity manager to persist the entities with, within an active transaction
+     * @param entities the entities to persist
+     */
+    public void persistAll(EntityManager em, Iterable<?> entities) {
+        int batchSize = getBatchSize(em);
+        int count = 0;
+        for (Object entity : entities) {
+            em.persist(entity);
+            if (++count % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * Returns the JDBC batch size configured for the persistence unit of the given entity manager,
+     * or a default if batching is not configured.
+     *
+     * @param em the entity manager
+     * @return the number of statements sent to the database at once
+     */
+    public static int getBatchSize(EntityManager em) {
+        int batchSize = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions().getJdbcBatchSize();
+        return batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Returns the entity manager of the unit of work running on the current thread,
+     * or the shared entity manager if there is none.
+     *
+     * @return the entity manager to use on the current thread
+     */
+    public EntityManager getEm() {
+        var current = unitOfWork.get();
+        return current != null ? current : em;
+    }
+
+    /**
+     * Runs the given work in a read-write unit of work and commits it.
+     * The transaction is rolled back if the work throws. When called within another unit of work
+     * on the same thread, the work joins it instead.
+     *
+     * @param work the work to run
+     * @throws IllegalStateException if called within a read-only unit of work
+     */
+    public void inTransaction(Consumer<EntityManager> work) {
+        fromTransaction(em -> {
+            work.accept(em);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the given work in a read-write unit of work, commits it and returns its result.
+     * The transaction is rolled back if the work throws. When called within another unit of work
+     * on the same thread, the work joins it instead.
+     *
+     * @param work the work to run
+     * @param <T>  the type of the result
+     * @return the result of the work
+     * @throws IllegalStateException if called within a read-only unit of work
+     */
+    public <T> T fromTransaction(Function<EntityManager, T> work) {
+        var current = unitOfWork.get();
+        if (current != null) {
+            if (current.unwrap(Session.class).isDefaultReadOnly())
+                throw new IllegalStateException("Cannot write within a read-only unit of work");
+            return work.apply(current);
+        }
+        return runUnitOfWork(work, false);
+    }
 
+    /**
+     * Runs the given work in a read-only unit of work and returns its result.
+     * The entities loaded by the work are read-only and never flushed, so Hibernate skips
+     * keeping their snapshots and dirty checking them. When called within another unit of work
+     * on the same thread, the work joins it instead.
+     *
+     * @param work the work to run
+     * @param <T>  the type of the result
+     * @return the result of the work
+     */
+    public <T> T readOnly(Function<EntityManager, T> work) {
+        var current = unitOfWork.get();
+        if (current != null) return work.apply(current);
+        return runUnitOfWork(work, true);
+    }
+
+    private <T> T runUnitOfWork(Function<EntityManager, T> work, boolean readOnly) {
+        if (entityManagerFactory == null) throw new IllegalStateException("EntityManagerFactory not set");
+
+        var em = entityManagerFactory.createEntityManager();
+        if (readOnly) {
+            var session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+        }
+        var outer = unitOfWork.get();
+        unitOfWork.set(em);
+        try {
+            em.getTransaction().begin();
+            T result = work.apply(em);
             em.getTransaction().commit();
+            return result;
         } finally {
+            // a nested unit of work hands the thread back to the enclosing one
+            if (outer == null) unitOfWork.remove();
+            else unitOfWork.set(outer);
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
             }
+            em.close();
         }
     }
 
+    /**
+     * Returns the current statistics of the connection pool of the entity manager factory.
+     *
+     * @return the statistics of the pool, or empty if the factory is not set or does not use a HikariCP pool
+     */
+    public Optional<PoolStats> getPoolStats() {
+        if (entityManagerFactory == null) return Optional.empty();
+
+        var connectionProvider = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        if (connectionProvider == null || !connectionProvider.isUnwrappableAs(DataSource.class)
+                || !(connectionProvider.unwrap(DataSource.class) instanceof HikariDataSource dataSource)
+                || dataSource.getHikariPoolMXBean() == null) {
+            return Optional.empty();
+        }
+
+        var pool = dataSource.getHikariPoolMXBean();
+        return Optional.of(new PoolStats(dataSource.getPoolName(), pool.getActiveConnections(),
+                pool.getIdleConnections(), pool.getTotalConnections(), pool.getThreadsAwaitingConnection(),
+                dataSource.getMaximumPoolSize()));
+    }
+
+    /**
+     * Returns the current statistics of all second-level cache regions, including the query cache.
+     * The statistics are collected only if {@code hibernate.generate_statistics} is enabled.
+     *
+     * @return the statistics of the cache regions, empty if the factory is not set
+     */
+    public List<CacheRegionStats> getCacheStatistics() {
+        if (entityManagerFactory == null) return List.of();
+
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .map(region -> {
+                    var regionStatistics = statistics.getCacheRegionStatistics(region);
+                    if (regionStatistics == null) return null;
+                    return new CacheRegionStats(region, regionStatistics.getHitCount(), regionStatistics.getMissCount(),
+                            regionStatistics.getPutCount(), Math.max(-1, regionStatistics.getElementCountInMemory()));
+                })
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(CacheRegionStats::region))
+                .toList();
+    }
+
     /**
      * Retrieves a list of trainers from the database.
      *
      * @return the list of trainers
      */
     public List<Trainer> getTrainers() {
-        return INSTANCE.getEm().createQuery("SELECT t FROM Trainer t", Trainer.class).getResultList();
+        return INSTANCE.getEm().createQuery("SELECT t FROM Trainer t", Trainer.class)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList();
     }
 
     /**
@@ -189,7 +506,527 @@ public enum DBController {
      * @return the list of courts
      */
     public List<Court> getCourts() {
-        return INSTANCE.getEm().createQuery("SELECT c FROM Court c", Court.class).getResultList();
+        return INSTANCE.getEm().createQuery("SELECT c FROM Court c", Court.class)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList();
+    }
+
+    /**
+     * Computes the availability of all courts for every opening hour of the given date.
+     * The reservations and trainings of the day are read with a single range query in a read-only
+     * unit of work, instead of walking the booking collections of every court.
+     *
+     * @param date the date to compute the availability for
+     * @return the availability matrix of the courts for the given date
+     */
+    public AvailabilityMatrix getAvailabilityMatrix(LocalDate date) {
+        var matrix = new AvailabilityMatrix(date, Court.getOpeningHour(), Court.getClosingHour(), getCourts());
+        getBookedSlots(date, date.plusDays(1))
+                .forEach(row -> matrix.markOccupied((Long) row[0], (LocalDateTime) row[1], (Duration) row[2]));
+        return matrix;
+    }
+
+    /**
+     * Computes the availability matrix of the given date together with the free intervals of every trainer
+     * and the occupied hours of every racket on that date, so the GUI can check the trainers and rackets
+     * for the marked hours without querying the database on the JavaFX application thread.
+     * The trainings of all trainers and the bookings of all rackets are read with a single range query each.
+     *
+     * @param date the date to compute the availability for
+     * @return the availability matrix of the courts, trainers and rackets for the given date
+     */
+    public AvailabilityMatrix getDayAvailability(LocalDate date) {
+        var matrix = getAvailabilityMatrix(date);
+        var from = date.atTime(Court.getOpeningHour());
+        var to = date.atTime(Court.getClosingHour());
+
+        Map<Long, List<TimeInterval>> trainerBusy = new HashMap<>();
+        getTrainerBookedSlots(from, to).forEach(row -> trainerBusy.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                .add(new TimeInterval((LocalDateTime) row[1], ((LocalDateTime) row[1]).plus((Duration) row[2]))));
+        for (Trainer trainer : getTrainers()) {
+            var busy = trainerBusy.getOrDefault(trainer.getId(), new ArrayList<>());
+            busy.sort(Comparator.comparing(TimeInterval::start));
+            matrix.addTrainer(trainer, trainer.getWorkingWindow(date)
+                    .map(window -> TimeInterval.gaps(window, busy))
+                    .orElse(List.of()));
+        }
+
+        getRackets().forEach(matrix::addRacket);
+        getRacketBookedSlots(from, to)
+                .forEach(row -> matrix.markRacketOccupied((Long) row[0], (LocalDateTime) row[1], (Duration) row[2]));
+        return matrix;
+    }
+
+    /**
+     * Returns the summary of the days of the given month on which any court has a free hour.
+     * The summary is computed from a single range query over the month's bookings and cached
+     * until {@link DBController#invalidateAvailabilityCache()} is called.
+     *
+     * @param month the month to get the summary for
+     * @return the availability summary of the month
+     */
+    public MonthAvailability getMonthAvailability(YearMonth month) {
+        return monthAvailabilityCache.computeIfAbsent(month, m -> readOnly(em -> {
+            var openingHour = Court.getOpeningHour();
+            var closingHour = Court.getClosingHour();
+            var courts = getCourts();
+
+            var days = new AvailabilityMatrix[m.lengthOfMonth()];
+            for (int d = 0; d < days.length; d++) {
+                days[d] = new AvailabilityMatrix(m.atDay(d + 1), openingHour, closingHour, courts);
+            }
+
+            getBookedSlots(m.atDay(1), m.atEndOfMonth().plusDays(1)).forEach(row -> {
+                var start = (LocalDateTime) row[1];
+                var duration = (Duration) row[2];
+                // a booking may reach into the next day, so it is marked on every day it touches
+                for (var day = start.toLocalDate(); day.atStartOfDay().isBefore(start.plus(duration)); day = day.plusDays(1)) {
+                    if (YearMonth.from(day).equals(m)) days[day.getDayOfMonth() - 1].markOccupied((Long) row[0], start, duration);
+                }
+            });
+
+            return new MonthAvailability(m, days);
+        }));
+    }
+
+    /**
+     * Returns the availability summary of the given month if it is already cached, without touching the database.
+     *
+     * @param month the month to get the summary for
+     * @return the cached availability summary of the month, or an empty optional
+     */
+    public Optional<MonthAvailability> getCachedMonthAvailability(YearMonth month) {
+        return Optional.ofNullable(monthAvailabilityCache.get(month));
+    }
+
+    /**
+     * Discards the cached availability summaries.
+     * Needs to be called after bookings are committed to the database.
+     */
+    public void invalidateAvailabilityCache() {
+        monthAvailabilityCache.clear();
+    }
+
+    /**
+     * Retrieves the court id, start and duration of every reservation and training
+     * overlapping the given range of days, using a single range query.
+     *
+     * @param from the first day of the range
+     * @param to   the day after the last day of the range
+     * @return the list of rows holding the court id, start and duration of the bookings
+     */
+    public List<Object[]> getBookedSlots(LocalDate from, LocalDate to) {
+        return readOnly(em -> {
+            List<Object[]> rows = new ArrayList<>(em.createQuery(
+                            "SELECT r.court.id, r.start, r.duration FROM Reservation r " +
+                                    "WHERE r.end > :from AND r.start < :to " +
+                                    "UNION ALL " +
+                                    "SELECT t.court.id, t.start, t.duration FROM Training t " +
+                                    "WHERE " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to", Object[].class)
+                    .setParameter("from", from.atStartOfDay())
+                    .setParameter("to", to.atStartOfDay())
+                    .getResultList());
+            for (var series : getSeries(null, null, from.atStartOfDay(), to.atStartOfDay())) {
+                series.occurrences(from.atStartOfDay(), to.atStartOfDay())
+                        .forEach(o -> rows.add(new Object[]{series.getCourt().getId(), o.start(), o.duration()}));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Checks if any reservation or training on the given court overlaps the given time period,
+     * using indexed queries instead of loading the court's bookings.
+     *
+     * @param court    the court to check
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return true if the court is booked during the period, false otherwise
+     */
+    public boolean isCourtBooked(Court court, LocalDateTime from, Duration duration) {
+        return anyOverlapping("SELECT r.id FROM Reservation r " +
+                "WHERE r.court = :owner AND r.end > :from AND r.start < :to", court, from, duration) ||
+                anyOverlapping("SELECT t.id FROM Training t " +
+                        "WHERE t.court = :owner AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to",
+                        court, from, duration) ||
+                getSeries("s.court = :owner", court, from, from.plus(duration)).stream()
+                        .anyMatch(s -> s.overlaps(from, from.plus(duration)));
+    }
+
+    /**
+     * Retrieves the start and duration of every reservation and training on the given court
+     * overlapping the given time period, using indexed queries instead of loading the court's bookings.
+     *
+     * @param court the court
+     * @param from  the start time of the period
+     * @param to    the end time of the period
+     * @return the list of rows holding the start and duration of the bookings
+     */
+    public List<Object[]> getCourtBookings(Court court, LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = new ArrayList<>(getEm().createQuery(
+                        "SELECT r.start, r.duration FROM Reservation r " +
+                                "WHERE r.court = :court AND r.end > :from AND r.start < :to " +
+                                "UNION ALL " +
+                                "SELECT t.start, t.duration FROM Training t " +
+                                "WHERE t.court = :court AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to",
+                        Object[].class)
+                .setParameter("court", court)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList());
+        for (var series : getSeries("s.court = :owner", court, from, to)) {
+            series.occurrences(from, to).forEach(o -> rows.add(new Object[]{o.start(), o.duration()}));
+        }
+        return rows;
+    }
+
+    /**
+     * Retrieves the start and duration of every training of the given trainer overlapping the given time period,
+     * using an indexed query instead of loading the trainer's trainings.
+     *
+     * @param trainer the trainer
+     * @param from    the start time of the period
+     * @param to      the end time of the period
+     * @return the list of rows holding the start and duration of the trainings, ordered by the start
+     */
+    public List<Object[]> getTrainerBookings(Trainer trainer, LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = getEm().createQuery(
+                        "SELECT t.start, t.duration FROM Training t " +
+                                "WHERE t.trainer = :trainer AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to " +
+                                "ORDER BY t.start", Object[].class)
+                .setParameter("trainer", trainer)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        var allSeries = getSeries("s.trainer = :owner", trainer, from, to);
+        if (allSeries.isEmpty()) return rows;
+
+        rows = new ArrayList<>(rows);
+        for (var series : allSeries) {
+            for (var o : series.occurrences(from, to).toList()) {
+                rows.add(new Object[]{o.start(), o.duration()});
+            }
+        }
+        rows.sort(Comparator.comparing(row -> (LocalDateTime) row[0]));
+        return rows;
+    }
+
+    /**
+     * Retrieves the trainer id, start and duration of every training overlapping the given time period,
+     * using a single range query.
+     *
+     * @param from the start time of the period
+     * @param to   the end time of the period
+     * @return the list of rows holding the trainer id, start and duration of the trainings
+     */
+    public List<Object[]> getTrainerBookedSlots(LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = new ArrayList<>(getEm().createQuery(
+                        "SELECT t.trainer.id, t.start, t.duration FROM Training t " +
+                                "WHERE " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList());
+        for (var series : getSeries(null, null, from, to)) {
+            series.occurrences(from, to).forEach(o -> rows.add(new Object[]{series.getTrainer().getId(), o.start(), o.duration()}));
+        }
+        return rows;
+    }
+
+    /**
+     * Retrieves the start and duration of every reservation and training using the given racket
+     * overlapping the given time period, using indexed queries instead of loading the racket's bookings.
+     *
+     * @param racket the racket
+     * @param from   the start time of the period
+     * @param to     the end time of the period
+     * @return the list of rows holding the start and duration of the bookings
+     */
+    public List<Object[]> getRacketBookings(Racket racket, LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = new ArrayList<>(getEm().createQuery(
+                        "SELECT r.start, r.duration FROM Reservation r " +
+                                "WHERE r.racket = :racket AND r.end > :from AND r.start < :to " +
+                                "UNION ALL " +
+                                "SELECT t.start, t.duration FROM Training t JOIN t.equipmentSet e " +
+                                "WHERE e = :racket AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to",
+                        Object[].class)
+                .setParameter("racket", racket)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList());
+        for (var series : getSeries(":owner MEMBER OF s.equipmentSet", racket, from, to)) {
+            series.occurrences(from, to).forEach(o -> rows.add(new Object[]{o.start(), o.duration()}));
+        }
+        return rows;
+    }
+
+    /**
+     * Retrieves the equipment of the given type free during the whole given time period, with a single query
+     * over the equipment pool instead of checking every piece of equipment on its own.
+     *
+     * @param type     the type of the equipment
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @param <T>      the type of the equipment
+     * @return the free equipment, ordered by identifier
+     */
+    public <T extends Equipment> List<T> getAvailableEquipment(Class<T> type, LocalDateTime from, Duration duration) {
+        var busy = getBusySeriesEquipment(from, from.plus(duration));
+        return getEm().createQuery("SELECT e FROM " + type.getSimpleName() + " e WHERE " + EQUIPMENT_FREE +
+                        " ORDER BY e.id", type)
+                .setParameter("from", from)
+                .setParameter("to", from.plus(duration))
+                .getResultStream()
+                .filter(e -> !busy.contains(e.getId()))
+                .toList();
+    }
+
+    /**
+     * Counts the rackets of every model free during the whole given time period, with a single query.
+     * Models with no free racket are left out.
+     *
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return the numbers of free rackets by model
+     */
+    public Map<Racket.Model, Long> getAvailableRacketCounts(LocalDateTime from, Duration duration) {
+        Map<Racket.Model, Long> counts = new LinkedHashMap<>();
+        getEm().createQuery("SELECT e.manufacturer, e.weight, e.pricePerHour, COUNT(e) FROM Racket e WHERE " +
+                        EQUIPMENT_FREE + " GROUP BY e.manufacturer, e.weight, e.pricePerHour " +
+                        "ORDER BY e.manufacturer, e.weight, e.pricePerHour", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", from.plus(duration))
+                .getResultList()
+                .forEach(row -> counts.put(new Racket.Model((String) row[0], (Double) row[1], (BigDecimal) row[2]),
+                        (Long) row[3]));
+
+        var busy = getBusySeriesEquipment(from, from.plus(duration));
+        if (!busy.isEmpty()) {
+            // the rackets of cyclical trainings taking place then were counted as free
+            getEm().createQuery("SELECT e FROM Racket e WHERE e.id IN :ids AND " + EQUIPMENT_FREE, Racket.class)
+                    .setParameter("ids", busy)
+                    .setParameter("from", from)
+                    .setParameter("to", from.plus(duration))
+                    .getResultList()
+                    .forEach(racket -> counts.computeIfPresent(racket.getModel(), (m, count) -> count > 1 ? count - 1 : null));
+        }
+        return counts;
+    }
+
+    /**
+     * Finds a racket of the given model free during the whole given time period.
+     *
+     * @param model    the model of the racket
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return the free racket with the lowest identifier, or empty if all rackets of the model are booked
+     */
+    public Optional<Racket> findAvailableRacket(Racket.Model model, LocalDateTime from, Duration duration) {
+        var busy = getBusySeriesEquipment(from, from.plus(duration));
+        return getEm().createQuery("SELECT e FROM Racket e WHERE e.manufacturer = :manufacturer " +
+                        "AND e.weight = :weight AND e.pricePerHour = :price AND " + EQUIPMENT_FREE + " ORDER BY e.id",
+                        Racket.class)
+                .setParameter("manufacturer", model.manufacturer())
+                .setParameter("weight", model.weight())
+                .setParameter("price", model.pricePerHour())
+                .setParameter("from", from)
+                .setParameter("to", from.plus(duration))
+                .setMaxResults(busy.size() + 1)
+                .getResultStream()
+                .filter(r -> !busy.contains(r.getId()))
+                .findFirst();
+    }
+
+    /**
+     * Retrieves the rackets free for at least one opening hour of the given date. The bookings of all rackets
+     * on the date are read with a single range query and folded into a bitmap of occupied hours per racket.
+     *
+     * @param date the date
+     * @return the rackets available on the date
+     */
+    public List<Racket> getAvailableRackets(LocalDate date) {
+        var firstHour = date.atTime(Court.getOpeningHour());
+        int hours = (int) Duration.between(Court.getOpeningHour(), Court.getClosingHour()).toHours();
+
+        Map<Long, Long> occupied = new HashMap<>();
+        getRacketBookedSlots(firstHour, firstHour.plusHours(hours))
+                .forEach(row -> occupied.merge((Long) row[0],
+                        HourBitmap.maskOf(firstHour, hours, (LocalDateTime) row[1], (Duration) row[2]), (a, b) -> a | b));
+
+        return getRackets().stream()
+                .filter(r -> new HourBitmap(firstHour, hours, occupied.getOrDefault(r.getId(), 0L)).anyFree())
+                .toList();
+    }
+
+    /**
+     * Retrieves the racket id, start and duration of every reservation and training using a racket
+     * overlapping the given time period, using a single range query.
+     *
+     * @param from the start time of the period
+     * @param to   the end time of the period
+     * @return the list of rows holding the racket id, start and duration of the bookings
+     */
+    public List<Object[]> getRacketBookedSlots(LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = new ArrayList<>(getEm().createQuery(
+                        "SELECT r.racket.id, r.start, r.duration FROM Reservation r " +
+                                "WHERE r.racket IS NOT NULL AND r.end > :from AND r.start < :to " +
+                                "UNION ALL " +
+                                "SELECT e.id, t.start, t.duration FROM Training t JOIN t.equipmentSet e " +
+                                "WHERE TYPE(e) = Racket AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to",
+                        Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList());
+        for (Object[] row : getSeriesEquipment("TYPE(e) = Racket", from, to)) {
+            ((CyclicalTraining) row[0]).occurrences(from, to).forEach(o -> rows.add(new Object[]{row[1], o.start(), o.duration()}));
+        }
+        return rows;
+    }
+
+    /**
+     * Checks if any reservation of the given racket overlaps the given time period,
+     * using an indexed query instead of loading the racket's reservations.
+     *
+     * @param racket   the racket to check
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return true if the racket is reserved during the period, false otherwise
+     */
+    public boolean isRacketReserved(Racket racket, LocalDateTime from, Duration duration) {
+        return anyOverlapping("SELECT r.id FROM Reservation r " +
+                "WHERE r.racket = :owner AND r.end > :from AND r.start < :to", racket, from, duration);
+    }
+
+    /**
+     * Checks if any training using the given equipment overlaps the given time period,
+     * using a query instead of loading the equipment's trainings.
+     *
+     * @param equipment the equipment to check
+     * @param from      the start time of the period
+     * @param duration  the duration of the period
+     * @return true if the equipment is used during the period, false otherwise
+     */
+    public boolean isEquipmentBooked(Equipment equipment, LocalDateTime from, Duration duration) {
+        return anyOverlapping("SELECT t.id FROM Training t JOIN t.equipmentSet e " +
+                "WHERE e = :owner AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to", equipment, from, duration) ||
+                getSeries(":owner MEMBER OF s.equipmentSet", equipment, from, from.plus(duration)).stream()
+                        .anyMatch(s -> s.overlaps(from, from.plus(duration)));
+    }
+
+    /**
+     * Checks if any training of the given trainer overlaps the given time period,
+     * using an indexed query instead of loading the trainer's trainings.
+     *
+     * @param trainer  the trainer to check
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return true if the trainer is busy during the period, false otherwise
+     */
+    public boolean isTrainerBooked(Trainer trainer, LocalDateTime from, Duration duration) {
+        return anyOverlapping("SELECT t.id FROM Training t " +
+                "WHERE t.trainer = :owner AND " + SINGLE_TRAINING + " AND t.end > :from AND t.start < :to",
+                trainer, from, duration) ||
+                getSeries("s.trainer = :owner", trainer, from, from.plus(duration)).stream()
+                        .anyMatch(s -> s.overlaps(from, from.plus(duration)));
+    }
+
+    /**
+     * Retrieves the cyclical trainings whose series spans over any part of the given time period,
+     * optionally only the ones meeting the given condition on the training {@code s} and its {@code :owner}.
+     * Whether they take place within the period is left to their occurrences.
+     *
+     * @param condition the condition on the training, null for all of them
+     * @param owner     the owner referenced by the condition
+     * @param from      the start time of the period
+     * @param to        the end time of the period
+     * @return the cyclical trainings spanning over the period
+     */
+    private List<CyclicalTraining> getSeries(String condition, Object owner, LocalDateTime from, LocalDateTime to) {
+        var query = getEm().createQuery("SELECT s FROM CyclicalTraining s WHERE s.end > :from AND s.start < :to" +
+                        (condition == null ? "" : " AND " + condition), CyclicalTraining.class)
+                .setParameter("from", from)
+                .setParameter("to", to);
+        if (condition != null) query.setParameter("owner", owner);
+        return query.getResultList();
+    }
+
+    /**
+     * Retrieves the cyclical trainings spanning over any part of the given time period with every piece of their
+     * equipment, optionally only the equipment meeting the given condition on the equipment {@code e}.
+     *
+     * @return the list of rows holding the training and the equipment id
+     */
+    private List<Object[]> getSeriesEquipment(String condition, LocalDateTime from, LocalDateTime to) {
+        return getEm().createQuery("SELECT s, e.id FROM CyclicalTraining s JOIN s.equipmentSet e " +
+                        "WHERE s.end > :from AND s.start < :to" + (condition == null ? "" : " AND " + condition),
+                        Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    /**
+     * Retrieves the ids of the equipment used by cyclical trainings taking place within the given time period.
+     */
+    private Set<Long> getBusySeriesEquipment(LocalDateTime from, LocalDateTime to) {
+        Set<Long> busy = new HashSet<>();
+        for (Object[] row : getSeriesEquipment(null, from, to)) {
+            if (((CyclicalTraining) row[0]).overlaps(from, to)) busy.add((Long) row[1]);
+        }
+        return busy;
+    }
+
+    /**
+     * Runs the given query for the owner's bookings overlapping the period and checks if it finds any.
+     * The overlap is decided by the database on the persisted end time, so at most one row is read.
+     */
+    private boolean anyOverlapping(String query, Object owner, LocalDateTime from, Duration duration) {
+        return !getEm().createQuery(query, Long.class)
+                .setParameter("owner", owner)
+                .setParameter("from", from)
+                .setParameter("to", from.plus(duration))
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Checks if availability of the owner of the given collections should be answered with range queries,
+     * i.e. if none of the collections is loaded yet and none has pending changes the range queries would not see.
+     * The booking collections are extra lazy, so a booking added to them is queued instead of loading them.
+     * A queued booking persisted by the current unit of work is seen by the range queries, since it is flushed
+     * before they run, so e.g. a unit of work booking the same court over and over keeps using range queries
+     * instead of loading the whole booking history of the court.
+     * Collections of entities not loaded from the database are always answered from memory.
+     *
+     * @param collections the booking collections of an entity
+     * @return true if range queries should be used, false if the collections should be used
+     */
+    public static boolean useRangeQuery(Collection<?>... collections) {
+        for (Collection<?> collection : collections) {
+            if (!(collection instanceof PersistentCollection<?> persistent)) return false;
+            if (persistent.wasInitialized()) return false;
+            if (persistent.hasQueuedOperations() && !isFlushedBeforeQueries(persistent)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the elements queued for addition to the given collection are seen by the range queries:
+     * they are entities persisted by the entity manager the queries run with, which flushes them before every query
+     * within its transaction.
+     */
+    private static boolean isFlushedBeforeQueries(PersistentCollection<?> collection) {
+        if (!(collection instanceof AbstractPersistentCollection<?> queued)) return false;
+        var session = queued.getSession();
+        if (session == null || !session.isTransactionInProgress()
+                || session.getHibernateFlushMode() != FlushMode.AUTO && session.getHibernateFlushMode() != FlushMode.ALWAYS)
+            return false;
+        var em = INSTANCE.getEm();
+        if (em == null || session != em.unwrap(SharedSessionContractImplementor.class)) return false;
+        for (var additions = collection.queuedAdditionIterator(); additions.hasNext(); ) {
+            if (!session.getPersistenceContextInternal().isEntryFor(additions.next())) return false;
+        }
+        return true;
     }
 
     /**
@@ -198,7 +1035,83 @@ public enum DBController {
      * @return the static storage entity
      */
     public StaticStorage getStaticStorage() {
-        return INSTANCE.getEm().createQuery("SELECT s FROM StaticStorage s", StaticStorage.class).getSingleResult();
+        return INSTANCE.getEm().createQuery("SELECT s FROM StaticStorage s", StaticStorage.class)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getSingleResult();
+    }
+
+    /**
+     * Returns the immutable snapshot of the static storage.
+     * The snapshot is loaded from the committed row on first use and then served from memory.
+     * A snapshot loaded within a read-write unit of work may see its uncommitted changes, so it is not cached.
+     *
+     * @return the snapshot of the static storage
+     */
+    public StaticStorageSnapshot getStaticStorageSnapshot() {
+        var cached = staticStorageSnapshot.get();
+        if (cached.snapshot() != null) return cached.snapshot();
+
+        var current = unitOfWork.get();
+        if (current != null && !current.unwrap(Session.class).isDefaultReadOnly()) {
+            return StaticStorageSnapshot.of(getStaticStorage());
+        }
+        var snapshot = readOnly(em -> StaticStorageSnapshot.of(em.createQuery("SELECT s FROM StaticStorage s", StaticStorage.class)
+                .setHint(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)
+                .setHint(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.REFRESH)
+                .getSingleResult()));
+        // an invalidation in the meantime may have made the loaded values stale, they are returned but not cached
+        staticStorageSnapshot.compareAndSet(cached, new CachedSnapshot(cached.generation(), snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Applies the given changes to the static storage entity in a transaction of its own
+     * and swaps the snapshot for the values read back from the committed row.
+     *
+     * @param changes the changes to apply to the static storage entity
+     * @return the new snapshot of the static storage
+     * @throws IllegalStateException if called within a unit of work, whose rollback would not undo the new snapshot
+     */
+    public StaticStorageSnapshot updateStaticStorage(Consumer<StaticStorage> changes) {
+        if (unitOfWork.get() != null)
+            throw new IllegalStateException("The static storage can not be updated within another unit of work");
+
+        inTransaction(em -> changes.accept(getStaticStorage()));
+        invalidateStaticStorageSnapshot();
+        invalidateAvailabilityCache();
+        return getStaticStorageSnapshot();
+    }
+
+    /**
+     * Replaces the snapshot of the static storage with the given one, without touching the database.
+     * Allows running the domain logic on in-memory entity graphs, e.g. in benchmarks.
+     *
+     * @param snapshot the snapshot of the static storage to use
+     */
+    public void useStaticStorageSnapshot(StaticStorageSnapshot snapshot) {
+        staticStorageSnapshot.getAndUpdate(cached -> new CachedSnapshot(cached.generation() + 1, snapshot));
+        invalidateAvailabilityCache();
+    }
+
+    /**
+     * Discards the snapshot of the static storage, so it gets reloaded from the database on next use.
+     */
+    public void invalidateStaticStorageSnapshot() {
+        staticStorageSnapshot.getAndUpdate(cached -> new CachedSnapshot(cached.generation() + 1, null));
+    }
+
+    /**
+     * Discards the snapshot of the static storage now and once more when the transaction of the given session completes.
+     * Called whenever the static storage entity is written: a snapshot loaded between the flush and the commit
+     * still holds the old values, and one loaded before a rollback the discarded ones.
+     *
+     * @param session the session writing the static storage entity
+     */
+    public void invalidateStaticStorageSnapshot(SessionImplementor session) {
+        invalidateStaticStorageSnapshot();
+        if (session.isTransactionInProgress()) {
+            session.getActionQueue().registerProcess((success, s) -> invalidateStaticStorageSnapshot());
+        }
     }
 
     /**
@@ -216,6 +1129,8 @@ public enum DBController {
      * @return the list of rackets
      */
     public List<Racket> getRackets() {
-        return INSTANCE.getEm().createQuery("SELECT r FROM Racket r", Racket.class).getResultList();
+        return INSTANCE.getEm().createQuery("SELECT r FROM Racket r", Racket.class)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList();
     }
 }
@@ -0,0 +1,111 @@
+package mas.util;
+
+import jakarta.persistence.EntityManager;
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Enum class representing a singleton executor running the database work of the GUI off the JavaFX application thread.
+ * <p>
+ * The shared entity manager of {@link DBController} is not thread-safe, so all work on it runs on a single
+ * session thread, one task after another. Units of work have entity managers of their own, so they run in parallel
+ * on a pool of worker threads. Results are handed back to the JavaFX application thread with {@link DBExecutor#FX}.
+ */
+public enum DBExecutor {
+    INSTANCE;
+
+    /**
+     * Executor running tasks on the JavaFX application thread, to be used with the async methods
+     * of {@link CompletableFuture}.
+     */
+    public static final Executor FX = Platform::runLater;
+
+    private static final int WORKER_THREADS = 4;
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final ExecutorService sessionExecutor = Executors.newSingleThreadExecutor(daemonThreads("db-session"));
+
+    private final ExecutorService workerExecutor = Executors.newFixedThreadPool(WORKER_THREADS, daemonThreads("db-worker"));
+
+    /**
+     * Runs the given work on the session thread, which owns the shared entity manager.
+     * Work loading or modifying the entities displayed by the GUI has to run here.
+     *
+     * @param work the work to run
+     * @param <T>  the type of the result
+     * @return the future result of the work
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, sessionExecutor);
+    }
+
+    /**
+     * Runs the given work on a worker thread, outside of any unit of work.
+     * The work must not touch the shared entity manager.
+     *
+     * @param work the work to run
+     * @param <T>  the type of the result
+     * @return the future result of the work
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, workerExecutor);
+    }
+
+    /**
+     * Runs the given work in a read-only unit of work on a worker thread.
+     *
+     * @param work the work to run
+     * @param <T>  the type of the result
+     * @return the future result of the work
+     * @see DBController#readOnly(Function)
+     */
+    public <T> CompletableFuture<T> readOnly(Function<EntityManager, T> work) {
+        return supplyAsync(() -> DBController.INSTANCE.readOnly(work));
+    }
+
+    /**
+     * Runs the given work in a read-write unit of work on a worker thread.
+     *
+     * @param work the work to run
+     * @param <T>  the type of the result
+     * @return the future result of the work
+     * @see DBController#fromTransaction(Function)
+     */
+    public <T> CompletableFuture<T> fromTransaction(Function<EntityManager, T> work) {
+        return supplyAsync(() -> DBController.INSTANCE.fromTransaction(work));
+    }
+
+    /**
+     * Stops accepting new work and waits a while for the work already submitted to complete,
+     * so the entity managers can be closed afterwards.
+     */
+    public void shutdown() {
+        sessionExecutor.shutdown();
+        workerExecutor.shutdown();
+        try {
+            sessionExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            workerExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,355 @@
+package mas.util;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import mas.entity.*;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Generator of synthetic, large-scale datasets for load and scaling tests of the Tennis Courts management application.
+ * It creates courts, clients with their participants, trainers and rackets, followed by reservations and trainings
+ * for every day of the given range. The entities are created with the same factories the application uses
+ * ({@link Person#registerClient}, {@link Reservation#makeReservation}, {@link Training#makeReservation}),
+ * so every booking passes the application's own validation.
+ * <p>
+ * Bookings are generated day by day and persisted in JDBC batches, one unit of work per week. A booking never
+ * spans more than a day, so the bookings of past days are dropped from the in-memory collections of the entities
+ * and the memory used does not depend on the number of days generated.
+ */
+public class DatasetGenerator {
+
+    /**
+     * Parameters of a generated dataset.
+     *
+     * @param courts             the number of courts, every other one roofed
+     * @param clients            the number of clients, each owning up to two participants
+     * @param trainers           the number of trainers
+     * @param rackets            the number of rackets
+     * @param from               the first day of the bookings
+     * @param days               the number of days of the bookings
+     * @param bookingProbability the probability of a free court hour starting a booking, before the peak hours
+     *                           and weekend adjustments
+     * @param trainingShare      the share of the bookings being trainings
+     * @param racketShare        the share of the bookings including a racket
+     * @param seed               the seed of the random generator, the same seed generates the same dataset
+     */
+    public record Parameters(int courts, int clients, int trainers, int rackets, LocalDate from, int days,
+                             double bookingProbability, double trainingShare, double racketShare, long seed) {
+
+        public Parameters {
+            if (courts < 1 || clients < 1 || trainers < 0 || rackets < 0 || days < 0)
+                throw new IllegalArgumentException("Invalid dataset size");
+            if (bookingProbability < 0 || bookingProbability > 1 || trainingShare < 0 || trainingShare > 1
+                    || racketShare < 0 || racketShare > 1)
+                throw new IllegalArgumentException("Probabilities must be between 0 and 1");
+        }
+
+        /**
+         * Creates the parameters of a dataset with the given size and realistic defaults for the rest:
+         * a trainer per two courts, four rackets per court and bookings starting today.
+         *
+         * @param courts  the number of courts
+         * @param clients the number of clients
+         * @param days    the number of days of the bookings
+         * @return the parameters of the dataset
+         */
+        public static Parameters of(int courts, int clients, int days) {
+            return new Parameters(courts, clients, Math.max(1, courts / 2), courts * 4, LocalDate.now(), days,
+                    0.5, 0.15, 0.3, 42);
+        }
+    }
+
+    /**
+     * Counts of the generated entities.
+     *
+     * @param courts       the number of courts
+     * @param clients      the number of clients
+     * @param participants the number of participants owned by the clients
+     * @param trainers     the number of trainers
+     * @param rackets      the number of rackets
+     * @param reservations the number of reservations
+     * @param trainings    the number of trainings
+     */
+    public record Summary(int courts, int clients, int participants, int trainers, int rackets,
+                          long reservations, long trainings) {
+    }
+
+    private static final String[] NAMES = {"Adam", "Anna", "Bartosz", "Barbara", "Piotr", "Katarzyna", "Michał",
+            "Magdalena", "Tomasz", "Agnieszka", "Paweł", "Joanna", "Krzysztof", "Ewa", "Marcin", "Monika"};
+
+    private static final String[] SURNAMES = {"Nowak", "Kowalski", "Wiśniewski", "Wójcik", "Kamiński", "Lewandowski",
+            "Zieliński", "Szymański", "Woźniak", "Dąbrowski", "Kozłowski", "Jankowski", "Mazur", "Krawczyk"};
+
+    private static final String[] MANUFACTURERS = {"Yonex", "Willson", "Head", "Babolat", "Prince"};
+
+    private static final int DAYS_PER_UNIT_OF_WORK = 7;
+
+    private final Parameters parameters;
+
+    private final Random random;
+
+    private final List<Court> courts = new ArrayList<>();
+
+    private final List<Person> clients = new ArrayList<>();
+
+    private final List<Person> participants = new ArrayList<>();
+
+    private final List<Trainer> trainers = new ArrayList<>();
+
+    private final List<Racket> rackets = new ArrayList<>();
+
+    private long reservationCount;
+
+    private long trainingCount;
+
+    /**
+     * Constructs a DatasetGenerator with the given parameters.
+     *
+     * @param parameters the parameters of the dataset
+     */
+    public DatasetGenerator(Parameters parameters) {
+        this.parameters = parameters;
+        this.random = new Random(parameters.seed());
+    }
+
+    /**
+     * Generates the dataset and persists it using the entity manager factory of {@link DBController}.
+     * The static storage is created with the default configuration if the database has none.
+     * The new entities are added next to the existing ones.
+     *
+     * @return the counts of the generated entities
+     */
+    public Summary generate() {
+        DBController.INSTANCE.inTransaction(this::createReferenceData);
+
+        for (int day = 0; day < parameters.days(); day += DAYS_PER_UNIT_OF_WORK) {
+            var first = parameters.from().plusDays(day);
+            var last = parameters.from().plusDays(Math.min(day + DAYS_PER_UNIT_OF_WORK, parameters.days()));
+            DBController.INSTANCE.inTransaction(em -> {
+                for (var date = first; date.isBefore(last); date = date.plusDays(1)) {
+                    DBController.INSTANCE.persistAll(em, generateBookings(date));
+                    trimBookings();
+                }
+            });
+        }
+        DBController.INSTANCE.invalidateAvailabilityCache();
+
+        return new Summary(courts.size(), clients.size(), participants.size(), trainers.size(), rackets.size(),
+                reservationCount, trainingCount);
+    }
+
+    private void createReferenceData(EntityManager em) {
+        if (em.createQuery("SELECT COUNT(s) FROM StaticStorage s", Long.class).getSingleResult() == 0) {
+            em.persist(DBController.defaultStaticStorage());
+        }
+
+        // continue numbering after the existing entities, as numbers, phones and emails are unique
+        int courtOffset = em.createQuery("SELECT COALESCE(MAX(c.number), 0) FROM Court c", Integer.class).getSingleResult();
+        long personOffset = em.createQuery("SELECT COUNT(p) FROM Person p", Long.class).getSingleResult();
+        long trainerOffset = em.createQuery("SELECT COUNT(t) FROM Trainer t", Long.class).getSingleResult();
+
+        var surfaceTypes = Court.SurfaceType.values();
+        var roofTypes = CourtRoofed.RoofType.values();
+        for (int i = 0; i < parameters.courts(); i++) {
+            int number = courtOffset + i + 1;
+            var surfaceType = surfaceTypes[random.nextInt(surfaceTypes.length)];
+            courts.add(i % 2 == 0
+                    ? new CourtRoofed(number, surfaceType, roofTypes[random.nextInt(roofTypes.length)])
+                    : new CourtUnroofed(number, surfaceType));
+        }
+        DBController.INSTANCE.persistAll(em, courts);
+
+        for (int i = 0; i < parameters.clients(); i++) {
+            var client = Person.registerClient(pick(NAMES), pick(SURNAMES), phoneNr(600_000_000, personOffset + i));
+            clients.add(client);
+            for (int p = random.nextInt(3); p > 0; p--) {
+                participants.add(Person.registerParticipant(pick(NAMES), client.getSurname(), client));
+            }
+        }
+        DBController.INSTANCE.persistAll(em, clients);
+        DBController.INSTANCE.persistAll(em, participants);
+
+        var opening = Court.getOpeningHour();
+        var closing = Court.getClosingHour();
+        var qualifications = Trainer.TrainerQualification.values();
+        for (int i = 0; i < parameters.trainers(); i++) {
+            trainers.add(new Trainer(pick(NAMES), pick(SURNAMES), phoneNr(700_000_000, trainerOffset + i),
+                    "trener" + (trainerOffset + i) + "@korty.pl", qualifications[random.nextInt(qualifications.length)],
+                    BigDecimal.valueOf(60 + 20L * random.nextInt(7)), randomWorkingHours(opening, closing)));
+        }
+        DBController.INSTANCE.persistAll(em, trainers);
+
+        for (int i = 0; i < parameters.rackets(); i++) {
+            rackets.add(new Racket(pick(MANUFACTURERS), 80. + random.nextInt(71),
+                    BigDecimal.valueOf(15 + 5L * random.nextInt(4))));
+        }
+        DBController.INSTANCE.persistAll(em, rackets);
+    }
+
+    /**
+     * Generates the bookings of all courts for the given day. Evenings and weekends are busier than
+     * the mornings of working days, and most bookings take an hour or two.
+     */
+    private List<Object> generateBookings(LocalDate date) {
+        var opening = date.atTime(Court.getOpeningHour());
+        var closing = date.atTime(Court.getClosingHour());
+        boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+
+        List<Object> bookings = new ArrayList<>();
+        for (Court court : courts) {
+            var time = opening;
+            while (!time.plusHours(1).isAfter(closing)) {
+                if (random.nextDouble() >= bookingProbability(time.toLocalTime(), weekend)) {
+                    time = time.plusHours(1);
+                    continue;
+                }
+
+                var duration = Duration.ofHours(Math.min(Duration.between(time, closing).toHours(), randomHours()));
+                if (!court.isAvailable(time, duration)) {
+                    time = time.plusHours(1);
+                    continue;
+                }
+
+                Object booking = random.nextDouble() < parameters.trainingShare() ? makeTraining(court, time, duration) : null;
+                if (booking == null) booking = makeReservation(court, time, duration);
+                bookings.add(booking);
+                time = time.plus(duration);
+            }
+        }
+        return bookings;
+    }
+
+    private double bookingProbability(LocalTime time, boolean weekend) {
+        double probability = parameters.bookingProbability();
+        if (time.getHour() >= 16) probability *= 1.4;
+        else if (time.getHour() < 12) probability *= 0.7;
+        if (weekend) probability *= 1.2;
+        return Math.min(1, probability);
+    }
+
+    private long randomHours() {
+        double r = random.nextDouble();
+        return r < 0.6 ? 1 : r < 0.95 ? 2 : 3;
+    }
+
+    private Training makeTraining(Court court, LocalDateTime start, Duration duration) {
+        if (trainers.isEmpty()) return null;
+        var trainer = pick(trainers);
+        if (!trainer.isAvailable(start, duration)) return null;
+
+        var client = pick(clients);
+        var training = Training.makeReservation(client, pickParticipant(client), trainer, court, start, duration);
+        var racket = pickRacket(start, duration);
+        if (racket != null) training.addEquipment(racket);
+        trainingCount++;
+        return training;
+    }
+
+    private Reservation makeReservation(Court court, LocalDateTime start, Duration duration) {
+        var client = pick(clients);
+        var reservation = Reservation.makeReservation(start, duration, court, pickRacket(start, duration),
+                client, pickParticipant(client));
+        reservationCount++;
+        return reservation;
+    }
+
+    private Person pickParticipant(Person client) {
+        var owned = client.getOwnedParticipants();
+        int i = random.nextInt(owned.size() + 1);
+        return i == owned.size() ? client : owned.stream().skip(i).findFirst().orElse(client);
+    }
+
+    private Racket pickRacket(LocalDateTime start, Duration duration) {
+        if (rackets.isEmpty() || random.nextDouble() >= parameters.racketShare()) return null;
+        var racket = pick(rackets);
+        return racket.isAvailable(start, duration) ? racket : null;
+    }
+
+    /**
+     * Drops the persisted bookings from the in-memory collections of the generated entities.
+     * The collections are not owning sides of the relationships, so the database is not affected.
+     */
+    private void trimBookings() {
+        courts.forEach(c -> {
+            c.getReservations().clear();
+            c.getTrainings().clear();
+            c.invalidateOccupancy();
+        });
+        trainers.forEach(t -> {
+            t.getTrainings().clear();
+            t.invalidateSchedule();
+        });
+        rackets.forEach(r -> {
+            r.getReservations().clear();
+            r.getTrainings().clear();
+        });
+        for (var people : List.of(clients, participants)) {
+            people.forEach(p -> {
+                p.getReservations().clear();
+                p.getReservationsBought().clear();
+                p.getTrainings().clear();
+                p.getTrainingsBought().clear();
+            });
+        }
+    }
+
+    private Map<DayOfWeek, WorkingHours> randomWorkingHours(LocalTime opening, LocalTime closing) {
+        int openHours = (int) Duration.between(opening, closing).toHours();
+        Map<DayOfWeek, WorkingHours> workingHours = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (random.nextDouble() < 0.6) {
+                int length = Math.min(openHours, 4 + random.nextInt(5));
+                var start = opening.plusHours(random.nextInt(openHours - length + 1));
+                workingHours.put(day, new WorkingHours(start, start.plusHours(length)));
+            }
+        }
+        return workingHours;
+    }
+
+    private static String phoneNr(int prefix, long index) {
+        return String.valueOf(prefix + index);
+    }
+
+    private <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * Generates a dataset into the database of the default persistence unit.
+     * Usage: {@code DatasetGenerator <courts> <clients> <days> [seed]}
+     *
+     * @param args the number of courts, clients and days, and optionally the seed
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: DatasetGenerator <courts> <clients> <days> [seed]");
+            System.exit(1);
+        }
+        var defaults = Parameters.of(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        var parameters = args.length < 4 ? defaults : new Parameters(defaults.courts(), defaults.clients(),
+                defaults.trainers(), defaults.rackets(), defaults.from(), defaults.days(), defaults.bookingProbability(),
+                defaults.trainingShare(), defaults.racketShare(), Long.parseLong(args[3]));
+
+        EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("default");
+        DBController.INSTANCE.setEntityManagerFactory(entityManagerFactory);
+        try {
+            long start = System.nanoTime();
+            var summary = new DatasetGenerator(parameters).generate();
+            System.out.println(summary + " in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package mas.util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Occupancy of a court on a single day as a bitmap of its opening hours, bit {@code h} standing for the hour
+ * starting {@code h} hours after opening. Once built from a single pass over the day's bookings, questions like
+ * "is any hour free", "which hour is free first" or "where do k free hours in a row start" are answered
+ * with a few bit operations instead of an availability check per hour.
+ */
+public final class HourBitmap {
+
+    /**
+     * The most hours a bitmap can hold.
+     */
+    public static final int MAX_HOURS = Long.SIZE;
+
+    private final LocalDateTime firstHour;
+
+    private final int hours;
+
+    private final long occupied;
+
+    /**
+     * Constructs an HourBitmap of the given hours.
+     *
+     * @param firstHour the start time of the first hour, i.e. the opening time of the day
+     * @param hours     the number of hours of the day
+     * @param occupied  the bits of the occupied hours, bits beyond the hours of the day are ignored
+     * @throws IllegalArgumentException if the number of hours is negative or greater than {@value #MAX_HOURS}
+     */
+    public HourBitmap(LocalDateTime firstHour, int hours, long occupied) {
+        if (hours < 0 || hours > MAX_HOURS) throw new IllegalArgumentException("Invalid number of hours: " + hours);
+        this.firstHour = firstHour;
+        this.hours = hours;
+        this.occupied = occupied & allHours(hours);
+    }
+
+    /**
+     * Returns the bits of the hours touched by the given booking, within the given hours of a day.
+     * The parts of the booking outside the day are ignored.
+     *
+     * @param firstHour the start time of the first hour of the day
+     * @param hours     the number of hours of the day
+     * @param start     the start time of the booking
+     * @param duration  the duration of the booking
+     * @return the bits of the hours touched by the booking
+     */
+    public static long maskOf(LocalDateTime firstHour, int hours, LocalDateTime start, Duration duration) {
+        long fromMinutes = Duration.between(firstHour, start).toMinutes();
+        long toMinutes = fromMinutes + duration.toMinutes();
+        int first = (int) Math.max(0, Math.floorDiv(fromMinutes, 60));
+        int last = (int) Math.min(hours, -Math.floorDiv(-toMinutes, 60));
+        return first < last ? allHours(last - first) << first : 0;
+    }
+
+    /**
+     * Returns the bits of the occupied hours.
+     *
+     * @return the bits of the occupied hours
+     */
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * Returns the bits of the free hours.
+     *
+     * @return the bits of the free hours
+     */
+    public long free() {
+        return ~occupied & allHours(hours);
+    }
+
+    /**
+     * Checks if any hour of the day is free.
+     *
+     * @return true if any hour is free, false otherwise
+     */
+    public boolean anyFree() {
+        return free() != 0;
+    }
+
+    /**
+     * Checks if the hour starting at the given time is free.
+     *
+     * @param time the start time of the hour
+     * @return true if the hour is one of the day's hours and is free, false otherwise
+     */
+    public boolean isFree(LocalDateTime time) {
+        long offset = Duration.between(firstHour, time).toMinutes();
+        if (offset < 0 || offset % 60 != 0 || offset / 60 >= hours) return false;
+        return (free() & 1L << (offset / 60)) != 0;
+    }
+
+    /**
+     * Returns the start time of the first free hour of the day.
+     *
+     * @return the start time of the first free hour, or empty if the day is fully occupied
+     */
+    public Optional<LocalDateTime> firstFree() {
+        return firstFreeRun(1);
+    }
+
+    /**
+     * Returns the bits of the hours starting the given number of free hours in a row.
+     *
+     * @param length the number of hours in a row
+     * @return the bits of the hours starting a free run of the given length
+     * @throws IllegalArgumentException if the length is not positive
+     */
+    public long freeRunStarts(int length) {
+        if (length < 1) throw new IllegalArgumentException("Invalid run length: " + length);
+        long starts = free();
+        // a run of 2n free hours starts where a run of n does and another one of n follows, so the runs
+        // are found by doubling their length; the hours beyond the day are never free, so no run crosses closing
+        int covered = 1;
+        while (covered < length && starts != 0) {
+            int shift = Math.min(covered, length - covered);
+            starts &= starts >>> shift;
+            covered += shift;
+        }
+        return starts;
+    }
+
+    /**
+     * Returns the start time of the first run of the given number of free hours.
+     *
+     * @param length the number of hours in a row
+     * @return the start time of the first free run, or empty if there is none
+     * @throws IllegalArgumentException if the length is not positive
+     */
+    public Optional<LocalDateTime> firstFreeRun(int length) {
+        long starts = freeRunStarts(length);
+        return starts == 0 ? Optional.empty() : Optional.of(firstHour.plusHours(Long.numberOfTrailingZeros(starts)));
+    }
+
+    /**
+     * Returns the start times of all runs of the given number of free hours, which may overlap each other.
+     *
+     * @param length the number of hours in a row
+     * @return the start times of the free runs, in chronological order
+     * @throws IllegalArgumentException if the length is not positive
+     */
+    public List<LocalDateTime> freeRuns(int length) {
+        List<LocalDateTime> runs = new ArrayList<>();
+        for (long starts = freeRunStarts(length); starts != 0; starts &= starts - 1) {
+            runs.add(firstHour.plusHours(Long.numberOfTrailingZeros(starts)));
+        }
+        return runs;
+    }
+
+    private static long allHours(int hours) {
+        return hours == MAX_HOURS ? -1L : (1L << hours) - 1;
+    }
+}
@@ -0,0 +1,133 @@
+package mas.util;
+
+import mas.entity.Booking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Index of bookings sorted by their start time, used for answering overlap queries
+ * without scanning the whole booking history.
+ * Since the longest indexed booking is tracked, only the entries starting within that distance
+ * before the queried period have to be checked, which makes a query O(log n) for non-overlapping bookings.
+ * The durations of the indexed bookings are counted, so the longest one is lowered again when it is removed.
+ * Recurring bookings can not be sorted by a single start, so they are kept aside and asked for their occurrences
+ * within the queried period instead.
+ * The indexed bookings must not change their start or duration while they are indexed,
+ * which is why the bookings only set them on creation.
+ *
+ * @param <T> the type of the indexed bookings
+ */
+public class IntervalIndex<T extends Booking> {
+
+    private final TreeMap<LocalDateTime, List<T>> byStart = new TreeMap<>();
+
+    private final List<T> recurring = new ArrayList<>();
+
+    private final TreeMap<Duration, Integer> durations = new TreeMap<>();
+
+    private int size = 0;
+
+    /**
+     * Adds the given booking to the index.
+     *
+     * @param booking the booking to add
+     */
+    public void add(T booking) {
+        if (booking.isRecurring()) {
+            recurring.add(booking);
+            size++;
+            return;
+        }
+        byStart.computeIfAbsent(booking.getStart(), s -> new ArrayList<>(1)).add(booking);
+        durations.merge(booking.getDuration(), 1, Integer::sum);
+        size++;
+    }
+
+    /**
+     * Removes the given booking from the index.
+     *
+     * @param booking the booking to remove
+     * @return true if the booking was indexed, false otherwise
+     */
+    public boolean remove(T booking) {
+        if (booking.isRecurring()) {
+            if (!recurring.removeIf(b -> b == booking)) return false;
+            size--;
+            return true;
+        }
+        List<T> bookings = byStart.get(booking.getStart());
+        if (bookings == null || !bookings.removeIf(b -> b == booking)) return false;
+        if (bookings.isEmpty()) byStart.remove(booking.getStart());
+        durations.computeIfPresent(booking.getDuration(), (d, count) -> count > 1 ? count - 1 : null);
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the indexed bookings overlapping the given time period.
+     *
+     * @param from the start time of the period
+     * @param to   the end time of the period
+     * @return the stream of overlapping bookings, ordered by their start time, the recurring ones last
+     */
+    public Stream<T> overlapping(LocalDateTime from, LocalDateTime to) {
+        return Stream.concat(candidates(from, to).values().stream()
+                        .flatMap(List::stream)
+                        .filter(b -> Util.isOverlapping(from, to, b.getStart(), b.getDuration())),
+                recurring.stream().filter(b -> b.overlaps(from, to)));
+    }
+
+    /**
+     * Returns the periods of the indexed bookings overlapping the given time period,
+     * including the single occurrences of the recurring bookings.
+     *
+     * @param from the start time of the period
+     * @param to   the end time of the period
+     * @return the stream of overlapping periods, the ones of the recurring bookings last
+     */
+    public Stream<TimeInterval> occupied(LocalDateTime from, LocalDateTime to) {
+        return Stream.concat(candidates(from, to).values().stream()
+                        .flatMap(List::stream)
+                        .filter(b -> Util.isOverlapping(from, to, b.getStart(), b.getDuration()))
+                        .map(b -> new TimeInterval(b.getStart(), b.getStart().plus(b.getDuration()))),
+                recurring.stream().flatMap(b -> b.occurrences(from, to)));
+    }
+
+    /**
+     * Checks if none of the indexed bookings overlaps the given time period.
+     *
+     * @param from     the start time of the period
+     * @param duration the duration of the period
+     * @return true if the period is free, false otherwise
+     */
+    public boolean isFree(LocalDateTime from, Duration duration) {
+        LocalDateTime to = from.plus(duration);
+        for (List<T> bookings : candidates(from, to).values()) {
+            for (T b : bookings) {
+                if (Util.isOverlapping(from, to, b.getStart(), b.getDuration())) return false;
+            }
+        }
+        return recurring.stream().noneMatch(b -> b.overlaps(from, to));
+    }
+
+    /**
+     * Returns the number of indexed bookings.
+     *
+     * @return the number of indexed bookings
+     */
+    public int size() {
+        return size;
+    }
+
+    private NavigableMap<LocalDateTime, List<T>> candidates(LocalDateTime from, LocalDateTime to) {
+        if (to.isBefore(from)) return new TreeMap<>();
+        Duration longest = durations.isEmpty() ? Duration.ZERO : durations.lastKey();
+        return byStart.subMap(from.minus(longest), false, to, false);
+    }
+}
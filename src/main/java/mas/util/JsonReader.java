@@ -0,0 +1,142 @@
+package mas.util;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader for the request bodies of the booking server and the rows of imported files.
+ * Only flat objects are supported, i.e. objects holding strings, numbers, booleans and nulls.
+ */
+public final class JsonReader {
+
+    private final String json;
+
+    private int pos = 0;
+
+    private JsonReader(String json) {
+        this.json = json;
+    }
+
+    /**
+     * Parses the given flat JSON object.
+     * Integral numbers are read as {@link Long}, other numbers as {@link BigDecimal}.
+     *
+     * @param json the JSON text
+     * @return the members of the object in their order
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    public static Map<String, Object> parseObject(String json) {
+        var reader = new JsonReader(json);
+        var object = reader.readObject();
+        reader.skipWhitespace();
+        if (reader.pos != json.length()) throw reader.error("unexpected content after the object");
+        return object;
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> members = new LinkedHashMap<>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return members;
+        }
+        while (true) {
+            skipWhitespace();
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            members.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return members;
+            }
+        }
+    }
+
+    private Object readValue() {
+        char c = peek();
+        if (c == '"') return readString();
+        if (c == '-' || Character.isDigit(c)) return readNumber();
+        if (json.startsWith("true", pos)) {
+            pos += 4;
+            return true;
+        }
+        if (json.startsWith("false", pos)) {
+            pos += 5;
+            return false;
+        }
+        if (json.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        }
+        throw error("unsupported value");
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) pos++;
+        var number = new BigDecimal(json.substring(start, pos));
+        try {
+            return number.longValueExact();
+        } catch (ArithmeticException e) {
+            return number;
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        var sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> sb.append(escaped);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > json.length()) throw error("truncated escape");
+                    sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                    pos += 4;
+                }
+                default -> throw error("invalid escape");
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) pos++;
+    }
+
+    private char peek() {
+        if (pos >= json.length()) throw error("unexpected end of input");
+        return json.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) throw error("expected '" + expected + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at position " + pos + ": " + message);
+    }
+}
@@ -0,0 +1,193 @@
+package mas.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal streaming JSON writer. Values are written straight to the underlying writer as they come,
+ * so large documents never have to be held in memory. The writer only separates the values with commas,
+ * checking that the document is well-formed is left to the caller.
+ */
+public class JsonWriter implements Flushable, Closeable {
+
+    private final Writer out;
+
+    /**
+     * For every open object or array, whether it already holds a value.
+     */
+    private final Deque<Boolean> scopes = new ArrayDeque<>();
+
+    private boolean afterName = false;
+
+    /**
+     * Constructs a JsonWriter writing to the given writer.
+     *
+     * @param out the writer to write the document to
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts an object.
+     *
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        scopes.push(false);
+        return this;
+    }
+
+    /**
+     * Ends the current object.
+     *
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter endObject() throws IOException {
+        scopes.pop();
+        out.write('}');
+        return this;
+    }
+
+    /**
+     * Starts an array.
+     *
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        scopes.push(false);
+        return this;
+    }
+
+    /**
+     * Ends the current array.
+     *
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter endArray() throws IOException {
+        scopes.pop();
+        out.write(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name the name of the member
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or null.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * Writes a value: numbers and booleans as they are, null as null and anything else as its string representation.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter value(Object value) throws IOException {
+        if (value == null) return nullValue();
+        if (value instanceof Number || value instanceof Boolean) {
+            beforeValue();
+            out.write(value.toString());
+            return this;
+        }
+        return value(value.toString());
+    }
+
+    /**
+     * Writes a null value.
+     *
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /**
+     * Writes a member with the given name and value.
+     *
+     * @param name  the name of the member
+     * @param value the value of the member
+     * @return this writer
+     * @throws IOException if the document can not be written
+     */
+    public JsonWriter member(String name, Object value) throws IOException {
+        return name(name).value(value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (scopes.isEmpty()) return;
+        if (scopes.pop()) out.write(',');
+        scopes.push(true);
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) out.write("\\u%04x".formatted((int) c));
+                    else out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,52 @@
+package mas.util;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Summary of a single month telling for each day whether any court has at least one free hour.
+ * It is computed once from the month's bookings and holds no references to the entities.
+ */
+public class MonthAvailability {
+
+    @Getter
+    private final YearMonth month;
+
+    /**
+     * Bitmask of the days with a free hour, bit 0 being the first day of the month.
+     */
+    private final long daysWithFreeHour;
+
+    /**
+     * Constructs a MonthAvailability from the availability matrices of all days of the month.
+     *
+     * @param month the month of the summary
+     * @param days  the availability matrices, one for each day of the month in order
+     */
+    public MonthAvailability(YearMonth month, AvailabilityMatrix[] days) {
+        if (days.length != month.lengthOfMonth())
+            throw new IllegalArgumentException("Expected %d days, got %d".formatted(month.lengthOfMonth(), days.length));
+
+        long mask = 0;
+        for (int d = 0; d < days.length; d++) {
+            if (days[d].anyAvailable()) mask |= 1L << d;
+        }
+        this.month = month;
+        this.daysWithFreeHour = mask;
+    }
+
+    /**
+     * Checks if any court has a free hour on the given date.
+     *
+     * @param date the date to check, must be within the month of the summary
+     * @return true if any court has a free hour, false otherwise
+     * @throws IllegalArgumentException if the date is outside the month of the summary
+     */
+    public boolean anyAvailable(LocalDate date) {
+        if (!YearMonth.from(date).equals(month))
+            throw new IllegalArgumentException("Date %s is outside of %s".formatted(date, month));
+        return (daysWithFreeHour & (1L << (date.getDayOfMonth() - 1))) != 0;
+    }
+}
@@ -0,0 +1,23 @@
+package mas.util;
+
+/**
+ * Point-in-time statistics of the database connection pool.
+ *
+ * @param poolName        the name of the pool
+ * @param active          the number of connections in use
+ * @param idle            the number of connections waiting in the pool
+ * @param total           the number of connections open in the pool
+ * @param threadsAwaiting the number of threads waiting for a connection
+ * @param maximumPoolSize the maximum number of connections of the pool
+ */
+public record PoolStats(String poolName, int active, int idle, int total, int threadsAwaiting, int maximumPoolSize) {
+
+    /**
+     * Checks if the pool is exhausted, i.e. all connections are in use and threads are waiting for one.
+     *
+     * @return true if the pool is exhausted, false otherwise
+     */
+    public boolean isExhausted() {
+        return threadsAwaiting > 0 && active >= maximumPoolSize;
+    }
+}
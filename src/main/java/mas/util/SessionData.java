@@ -7,6 +7,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import mas.entity.*;
+import mas.service.BookingOrder;
+import mas.service.BookingRequest;
+import mas.service.PricingEngine;
+import mas.service.Quote;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -61,29 +65,28 @@ public class SessionData {
      * @return The total price of the session.
      */
     public static BigDecimal getTotalPrice() {
-        if (reservationStart.getValue() == null || reservationDuration.getValue() == null) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal totalPrice = BigDecimal.ZERO;
-        BigDecimal duration = BigDecimal.valueOf(reservationDuration.getValue().toHours());
-
-        if (court.getValue() instanceof CourtRoofed) {
-            totalPrice = totalPrice.add(CourtRoofed.getPricePerHour().multiply(duration))
-                    .add(CourtRoofed.getHeatingSurcharge(reservationStart.getValue().toLocalDate()));
-        } else if (court.getValue() instanceof CourtUnroofed) {
-            totalPrice = totalPrice.add(CourtUnroofed.getPricePerHour().multiply(duration));
-        }
-
-        if (racket.getValue() != null) {
-            totalPrice = totalPrice.add(racketProperty().getValue().getPricePerHour().multiply(duration));
-        }
+        return getQuote().totalAmount();
+    }
 
-        if (trainer.getValue() != null) {
-            totalPrice = totalPrice.add(trainerProperty().getValue().getPricePerHour().multiply(duration));
-        }
+    /**
+     * Calculates the quote of the session based on the court, racket, trainer, and duration.
+     *
+     * @return The quote of the session.
+     */
+    public static Quote getQuote() {
+        return PricingEngine.INSTANCE.quote(new BookingRequest(court.getValue(), reservationStart.getValue(),
+                reservationDuration.getValue(), racket.getValue(), trainer.getValue()));
+    }
 
-        return totalPrice;
+    /**
+     * Returns the booking order described by the session.
+     *
+     * @return The booking order of the session.
+     */
+    public static BookingOrder getOrder() {
+        return new BookingOrder(client.getValue(), participant.getValue(), court.getValue(),
+                reservationStart.getValue(), reservationDuration.getValue(), racket.getValue(), trainer.getValue(),
+                comment.getValue());
     }
 
     /**
@@ -0,0 +1,52 @@
+package mas.util;
+
+import mas.entity.StaticStorage;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Immutable copy of the values persisted in {@link StaticStorage}.
+ * It is loaded once by {@link DBController} and served from memory, so reading the configuration
+ * does not require a database query.
+ *
+ * @param courtOpeningHour              the opening hour of the tennis courts
+ * @param courtClosingHour              the closing hour of the tennis courts
+ * @param courtRoofedPricePerHour       the price per hour for a roofed tennis court
+ * @param courtRoofedHeatingSurcharge   the heating surcharge for a roofed tennis court
+ * @param courtRoofedHeatingSeasonStart the start date of the heating season for a roofed tennis court
+ * @param courtRoofedHeatingSeasonEnd   the end date of the heating season for a roofed tennis court
+ * @param courtUnroofedPricePerHour     the price per hour for an unroofed tennis court
+ * @param courtUnroofedSeasonStart      the start date of the season for an unroofed tennis court
+ * @param courtUnroofedSeasonEnd        the end date of the season for an unroofed tennis court
+ */
+public record StaticStorageSnapshot(LocalTime courtOpeningHour,
+                                    LocalTime courtClosingHour,
+                                    BigDecimal courtRoofedPricePerHour,
+                                    BigDecimal courtRoofedHeatingSurcharge,
+                                    LocalDate courtRoofedHeatingSeasonStart,
+                                    LocalDate courtRoofedHeatingSeasonEnd,
+                                    BigDecimal courtUnroofedPricePerHour,
+                                    LocalDate courtUnroofedSeasonStart,
+                                    LocalDate courtUnroofedSeasonEnd) {
+
+    /**
+     * Creates a snapshot of the current values of the given static storage entity.
+     *
+     * @param staticStorage the static storage entity
+     * @return the snapshot of the static storage
+     */
+    public static StaticStorageSnapshot of(StaticStorage staticStorage) {
+        return new StaticStorageSnapshot(
+                staticStorage.getCourtOpeningHour(),
+                staticStorage.getCourtClosingHour(),
+                staticStorage.getCourtRoofedPricePerHour(),
+                staticStorage.getCourtRoofedHeatingSurcharge(),
+                staticStorage.getCourtRoofedHeatingSeasonStart(),
+                staticStorage.getCourtRoofedHeatingSeasonEnd(),
+                staticStorage.getCourtUnroofedPricePerHour(),
+                staticStorage.getCourtUnroofedSeasonStart(),
+                staticStorage.getCourtUnroofedSeasonEnd());
+    }
+}
@@ -0,0 +1,115 @@
+package mas.util;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A half-open period of time, from its start inclusive to its end exclusive.
+ *
+ * @param start the start of the interval
+ * @param end   the end of the interval, not before its start
+ */
+public record TimeInterval(LocalDateTime start, LocalDateTime end) {
+
+    public TimeInterval {
+        if (end.isBefore(start)) throw new IllegalArgumentException("Interval ends before it starts: " + start + " - " + end);
+    }
+
+    /**
+     * Returns the length of the interval.
+     *
+     * @return the length of the interval
+     */
+    public Duration duration() {
+        return Duration.between(start, end);
+    }
+
+    /**
+     * Checks if the given period lies within the interval.
+     *
+     * @param from the start of the period
+     * @param to   the end of the period
+     * @return true if the period lies within the interval, false otherwise
+     */
+    public boolean contains(LocalDateTime from, LocalDateTime to) {
+        return !from.isBefore(start) && !to.isAfter(end);
+    }
+
+    /**
+     * Checks if the interval contains a whole hour starting on the hour, like the slots offered for booking.
+     *
+     * @return true if a full hour fits in the interval, false otherwise
+     */
+    public boolean containsFullHour() {
+        var hour = start.truncatedTo(ChronoUnit.HOURS);
+        if (hour.isBefore(start)) hour = hour.plusHours(1);
+        return !hour.plusHours(1).isAfter(end);
+    }
+
+    /**
+     * Removes the given period from the given intervals.
+     *
+     * @param intervals the intervals, ordered and not overlapping
+     * @param from      the start of the removed period
+     * @param to        the end of the removed period
+     * @return the parts of the intervals outside the period, in order; empty parts are dropped
+     */
+    public static List<TimeInterval> subtract(List<TimeInterval> intervals, LocalDateTime from, LocalDateTime to) {
+        List<TimeInterval> result = new ArrayList<>(intervals.size() + 1);
+        for (TimeInterval interval : intervals) {
+            if (!to.isAfter(interval.start()) || !from.isBefore(interval.end())) {
+                result.add(interval);
+                continue;
+            }
+            if (from.isAfter(interval.start())) result.add(new TimeInterval(interval.start(), from));
+            if (to.isBefore(interval.end())) result.add(new TimeInterval(to, interval.end()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the parts of the given window not covered by any of the given busy periods, in a single sweep.
+     *
+     * @param window the window
+     * @param busy   the busy periods, ordered by their start; they may overlap each other and reach out of the window
+     * @return the free parts of the window, in order; empty parts are dropped
+     */
+    public static List<TimeInterval> gaps(TimeInterval window, List<TimeInterval> busy) {
+        List<TimeInterval> result = new ArrayList<>();
+        var free = window.start();
+        for (TimeInterval period : busy) {
+            if (!period.start().isBefore(window.end())) break;
+            if (period.start().isAfter(free)) result.add(new TimeInterval(free, period.start()));
+            if (period.end().isAfter(free)) free = period.end();
+        }
+        if (free.isBefore(window.end())) result.add(new TimeInterval(free, window.end()));
+        return result;
+    }
+
+    /**
+     * Returns the periods lying within both of the given lists of intervals, merging the lists in a single sweep.
+     *
+     * @param first  the first intervals, ordered and not overlapping
+     * @param second the second intervals, ordered and not overlapping
+     * @return the common parts of the intervals, in order; empty parts are dropped
+     */
+    public static List<TimeInterval> intersect(List<TimeInterval> first, List<TimeInterval> second) {
+        List<TimeInterval> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < first.size() && j < second.size()) {
+            var a = first.get(i);
+            var b = second.get(j);
+            var start = a.start().isAfter(b.start()) ? a.start() : b.start();
+            var end = a.end().isBefore(b.end()) ? a.end() : b.end();
+            if (start.isBefore(end)) result.add(new TimeInterval(start, end));
+            // the interval ending first can not overlap anything further in the other list
+            if (a.end().isBefore(b.end())) i++;
+            else j++;
+        }
+        return result;
+    }
+}
@@ -10,8 +10,12 @@ module ProjektMAS {
     requires javafx.graphics;
     requires jakarta.persistence;
     requires org.hibernate.orm.core;
+    requires org.hibernate.orm.hikaricp;
+    requires com.zaxxer.hikari;
+    requires java.sql;
     requires reflections;
     requires org.jetbrains.annotations;
+    requires jdk.httpserver;
 
     opens mas;
     opens mas.entity;
@@ -19,4 +23,6 @@ module ProjektMAS {
     exports mas;
     exports mas.entity;
     exports mas.util;
+    exports mas.service;
+    exports mas.server;
 }
\ No newline at end of file